@@ -1,14 +1,33 @@
 package project5;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * This BST class shows a BST data structure. Parts of this class is taken from ED workspace.
  * 
+ * The nodes are not objects: a node is an int handle, the index of its slot in the parallel 
+ * arrays left, right, sizes and data. A node costs 16 bytes of arrays (three ints and one 
+ * reference) instead of a node object of 32 bytes, and walking the tree reads ints from 
+ * a few arrays instead of following references between objects spread over the heap. The 
+ * slots of removed nodes are kept on a free list and reused by later adds, and the arrays 
+ * grow by half their length when they are full.
+ * 
+ * The tree keeps no scratch state of its own between calls: the paths of add and remove, 
+ * the halves of a split and the comparisons counted for {@link Metrics} live in each call. 
+ * The operations that only read the tree, like {@link BST#countRange(Comparable, 
+ * Comparable)} and {@link BST#forEachInRange(Comparable, Comparable, Predicate)}, may 
+ * therefore run in many threads at once as long as no thread changes the tree.
+ * 
  * @author Jonason Wu, Joanna Klukowska
  * @version 12/3/2020
  *
@@ -16,21 +35,41 @@ import java.util.Objects;
  */
 public class BST < T extends Comparable <T>> {
 	
-    private BSTNode root;   //reference to the root node of the tree 
+    private int root = NIL; //handle of the root node of the tree, NIL if it is empty 
     private int size;       //number of values stored in this tree 
     private Comparator<T> comparator;   //comparator object to overwrite the 
                                 //natural ordering of the elements 
 
     
-	private boolean found;  //helper variable used by the remove methods
-    private boolean added ; //helper variable used by the add method 
+    //the nodes: the handles of the children, the number of nodes in the subtree and the 
+    //element of every slot. A removed slot is on the free list, linked through left. 
+    private int[] left = NO_NODES;
+    private int[] right = NO_NODES;
+    private int[] sizes = NO_NODES;
+    private Object[] data = NO_DATA;
+    private int used;       //number of slots handed out, free or not 
+    private int free = NIL; //handle of the first free slot, NIL if there is none 
+    //largest allowed depth as a multiple of log2(size) before a subtree is rebuilt, 
+    //0 if the tree is never rebuilt 
+    private double rebalanceFactor = 0;
+
+    /**
+     * A rebalance factor that keeps the height of a tree within about twice the height of 
+     * a perfectly balanced tree, see {@link BST#setRebalanceFactor(double)}.
+     */
+    public static final double DEFAULT_REBALANCE_FACTOR = 2.0;
 
+    //the handle of a missing node, like a null reference 
+    private static final int NIL = -1;
+    //the arrays of a tree that never held a node, shared so that empty trees are cheap 
+    private static final int[] NO_NODES = {};
+    private static final Object[] NO_DATA = {};
 
     /**
 	 * Constructs a new, empty tree, sorted according to the natural ordering of its elements.
 	 */
     public BST () {
-        root = null; 
+        root = NIL; 
         size = 0; 
         comparator = null; 
     }
@@ -64,13 +103,13 @@ public class BST < T extends Comparable <T>> {
 		if (o == null && comparator == null) 
 			throw new NullPointerException("The parameter is null and this tree uses "
 					+ "natural ordering");
-		BSTNode find;
+		T find;
     	try {
     		//If o cannot be cast to T, then !(o instanceof Comparable), 
     		//	ClassCastException thrown. If o == null, then the cast is done.
-    		find = new BSTNode((T) o);
+    		find = (T) o;
     		//See if they are comparable. If not, then either exception could be thrown
-    		root.compareTo(find);
+    		compare(data(root), find);
     	}
     	catch (ClassCastException ex) {
     		throw new ClassCastException("Specified object cannot be compared with elements "
@@ -92,24 +131,24 @@ public class BST < T extends Comparable <T>> {
      * @param o - object to be checked for containment in this set
      * @return true if this tree contains the specified element
      */
-    private boolean contains(BSTNode find, BSTNode root) {
-    	if (root == null) 
+    private boolean contains(T find, int root) {
+    	if (root == NIL) 
     		return false;
     	
-    	//The compareTo method compares using the comparator is there exists one.
-    	int relation = root.compareTo(find);
+    	//The compare method compares using the comparator is there exists one.
+    	int relation = compare(data(root), find);
     	if (relation > 0)
     		//root > find, so find could only possibly be on the left
-    		return contains(find, root.left);
+    		return contains(find, left[root]);
     	else if (relation < 0)
     		//root < find, so find could only possibly be on the right
-    		return contains(find, root.right);
+    		return contains(find, right[root]);
     	else
     		//relation == 0, so find should be found. Make sure that both objects 
     		//	are equal determined by equals() method as well. If it is not, then false 
     		//  is returned because method of adding to the tree makes it so that there
     		//	will not be duplicates determined by the comparison.
-    		return Objects.equals(find.data, root.data);
+    		return Objects.equals(find, data[root]);
     }
     
     /**
@@ -118,7 +157,7 @@ public class BST < T extends Comparable <T>> {
      * @return true if this tree contains no elements
      */
     public boolean isEmpty() {
-    	if (root == null)
+    	if (root == NIL)
     		return true;
     	return false;
     }
@@ -164,16 +203,27 @@ public class BST < T extends Comparable <T>> {
     	}
     	
     	/**
-    	 * Inorder traversal of BST to add the elements into the array.
+    	 * Inorder traversal of BST to add the elements into the array. Iterative 
+    	 * implementation reading the node arrays from local variables, which the JIT 
+    	 * compiler keeps in registers.
     	 * 
     	 * @param root - the root of the BST tree
     	 */    	
-    	private void addTree(BSTNode root) {
-    		if (root == null)
-    			return;
-    		addTree(root.left);
-    		arr[adding++] = root.data;
-    		addTree(root.right);   		
+    	private void addTree(int root) {
+    		int[] left = BST.this.left;
+    		int[] right = BST.this.right;
+    		Object[] data = BST.this.data;
+    		IntStack stack = new IntStack();
+    		int node = root;
+    		while (node != NIL || !stack.isEmpty()) {
+    			while (node != NIL) {
+    				stack.push(node);
+    				node = left[node];
+    			}
+    			node = stack.pop();
+    			arr[adding++] = data[node];
+    			node = right[node];
+    		}
     	}
     	
 		@Override
@@ -188,6 +238,169 @@ public class BST < T extends Comparable <T>> {
 		}
     }
     
+    /**
+     * Returns an iterator over the elements in this tree in ascending order that walks the 
+     * tree as it goes instead of copying it first, keeping only the path to the next element. 
+     * The whole walk is O(N) and needs O(H) extra memory, so two trees can be merged side by 
+     * side without snapshotting either of them. The tree should not be modified while the 
+     * iterator is in use.
+     * 
+     * @return a lazy iterator over the elements in this tree in ascending order
+     */
+    Iterator<T> inorder() {
+    	return new InorderItr();
+    }
+    
+    /**
+     * Used by {@link BST#inorder()}. The stack holds the nodes whose left subtree is being 
+     * visited, so its top is the next element.
+     */
+    private class InorderItr implements Iterator<T> {
+    	private final IntStack stack = new IntStack();
+    	
+    	InorderItr() {
+    		pushLeft(BST.this.root);
+    	}
+    	
+    	/**
+    	 * Pushes the given node and its left descendants.
+    	 */
+    	private void pushLeft(int node) {
+    		while (node != NIL) {
+    			stack.push(node);
+    			node = left[node];
+    		}
+    	}
+    	
+		@Override
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+
+		@Override
+		public T next() {
+			if (stack.isEmpty())
+				throw new NoSuchElementException();
+			int node = stack.pop();
+			pushLeft(right[node]);
+			return data(node);
+		}
+    }
+    
+    /**
+     * Returns a spliterator over the elements in this tree in ascending order. The elements 
+     * are not copied: the spliterator walks the nodes of the tree, and splits along subtree 
+     * boundaries, so the sizes of both halves are exact. The spliterator reports 
+     * SORTED, DISTINCT, ORDERED, SIZED, SUBSIZED and NONNULL. The tree should not be modified 
+     * while the spliterator is in use. This operation should be O(1).
+     * 
+     * @return a spliterator over the elements in this tree in ascending order
+     */
+    public Spliterator<T> spliterator() {
+    	return new Split(null, root);
+    }
+    
+    /**
+     * Used by {@link BST#spliterator()}. The remaining elements are an optional head element 
+     * followed by the elements of a subtree, in order. Splitting hands the head and the left 
+     * subtree to the new spliterator, and keeps the root of the subtree as the new head 
+     * followed by the right subtree, so both parts keep the same shape.
+     * 
+     * @author Jonason Wu
+     */
+    private class Split implements Spliterator<T> {
+    	//The element returned before the subtree, null if there is none
+    	T head;
+    	//The subtree whose elements follow the head
+    	int sub;
+    	//The nodes left to visit once the traversal started, null before that
+    	IntStack stack = null;
+    	
+    	Split(T head, int sub) {
+    		this.head = head;
+    		this.sub = sub;
+    	}
+    	
+    	@Override
+    	public Spliterator<T> trySplit() {
+    		//Only split before the traversal started
+    		if (stack != null)
+    			return null;
+    		//Without a head and left subtree, move the root to the head so that something 
+    		//	can be split off
+    		while (head == null && sub != NIL && left[sub] == NIL) {
+    			head = data(sub);
+    			sub = right[sub];
+    		}
+    		if (sub == NIL)
+    			return null;
+    		Split prefix = new Split(head, left[sub]);
+    		head = data(sub);
+    		sub = right[sub];
+    		return prefix;
+    	}
+    	
+    	@Override
+    	public boolean tryAdvance(Consumer<? super T> action) {
+    		if (action == null)
+    			throw new NullPointerException();
+    		if (head != null) {
+    			T data = head;
+    			head = null;
+    			action.accept(data);
+    			return true;
+    		}
+    		if (stack == null) {
+    			stack = new IntStack();
+    			pushLeft(sub);
+    			sub = NIL;
+    		}
+    		if (stack.isEmpty())
+    			return false;
+    		int node = stack.pop();
+    		pushLeft(right[node]);
+    		action.accept(data(node));
+    		return true;
+    	}
+    	
+    	@Override
+    	public void forEachRemaining(Consumer<? super T> action) {
+    		while (tryAdvance(action));
+    	}
+    	
+    	/**
+    	 * Pushes the node and its chain of left children on the stack.
+    	 */
+    	private void pushLeft(int node) {
+    		while (node != NIL) {
+    			stack.push(node);
+    			node = left[node];
+    		}
+    	}
+    	
+    	@Override
+    	public long estimateSize() {
+    		long remaining = (head == null) ? 0 : 1;
+    		if (stack == null)
+    			return remaining + size(sub);
+    		//Each node on the stack still has itself and its right subtree to visit
+    		for (int i = 0; i < stack.size(); i++)
+    			remaining += 1 + size(right[stack.get(i)]);
+    		return remaining;
+    	}
+    	
+    	@Override
+    	public int characteristics() {
+    		return SORTED | DISTINCT | ORDERED | SIZED | SUBSIZED | NONNULL;
+    	}
+    	
+    	@Override
+    	public Comparator<? super T> getComparator() {
+    		//null means natural ordering
+    		return comparator;
+    	}
+    }
+    
     /**
      * Returns a collection whose elements range from fromElement, inclusive, to toElement, 
      * inclusive. The returned collection/list is backed by this tree, so changes in the 
@@ -208,48 +421,48 @@ public class BST < T extends Comparable <T>> {
     	if (fromElement == null || toElement == null)
     		throw new NullPointerException ("The parameters passed in cannot be null");
     	//fromElement cannot be > than toElement
-    	BSTNode from = new BSTNode(fromElement);
-    	BSTNode to = new BSTNode(toElement);
-    	if (from.compareTo(to) > 0)
+    	if (compare(fromElement, toElement) > 0)
     		throw new IllegalArgumentException ("The lower endpoint cannot be greater than the "
     				+ "higher endpoint");
     	
     	//The array to return
     	ArrayList<T> arr = new ArrayList<>();
     	
-		return getRange(from, to, root, arr);
+    	long compared = getRange(fromElement, toElement, root, arr);
+    	if (Metrics.ENABLED)
+    		Metrics.BST_RANGE.record(compared);
+		return arr;
     }
 
     /**
      * Continuation of {@link BST#getRange(Comparable, Comparable)}. The parameters are 
-     * validated. Recursive implementation!
+     * validated. Recursive implementation! The comparisons are returned instead of being 
+     * counted in a field, so concurrent readers of this tree do not share any state.
      * 
      * @param fromElement - low endpoint (inclusive) of the returned collection
      * @param toElement - high endpoint (inclusive) of the returned collection
-     * @return a collection containing a portion of this tree whose elements range from 
-     * fromElement, inclusive, to toElement, inclusive
+     * @param arr - the collection the elements in the range are added to
+     * @return the number of comparisons made
      */
-    private ArrayList<T> getRange(BSTNode fromElement, BSTNode toElement, BSTNode root, 
-    		ArrayList<T> arr) {
-    	if (root == null)
-    		return arr;
+    private long getRange(T fromElement, T toElement, int root, ArrayList<T> arr) {
+    	if (root == NIL)
+    		return 0;
     	
     	//To be included in the ArrayList:
     	//	must be greater than or equal to 0.  
-    	if (root.compareTo(fromElement) < 0)
+    	if (compare(data(root), fromElement) < 0)
     		//The root is too small to be included, so only right elements are possibly included
-    		return getRange(fromElement, toElement, root.right, arr);
+    		return 1 + getRange(fromElement, toElement, right[root], arr);
     	//	must be lesser than or equal to 0.
-    	if (root.compareTo(toElement) > 0) 
+    	if (compare(data(root), toElement) > 0) 
     		//The root is too big to be included, so only left elements are possibly included
-    		return getRange(fromElement, toElement, root.left, arr);
+    		return 2 + getRange(fromElement, toElement, left[root], arr);
     	
     	//root is greater than or equal to fromElement and less than or equal to toElement:
     	//	both sides work, so perform inorder traversal.
-    	getRange(fromElement, toElement, root.left, arr);
-    	arr.add(root.data);
-    	getRange(fromElement, toElement, root.right, arr);
-		return arr;
+    	long compared = 2 + getRange(fromElement, toElement, left[root], arr);
+    	arr.add(data(root));
+		return compared + getRange(fromElement, toElement, right[root], arr);
 	}
 
 
@@ -274,16 +487,17 @@ public class BST < T extends Comparable <T>> {
     	if (fromElement == null || toElement == null)
     		throw new NullPointerException ("The parameters passed in cannot be null");
     	//fromElement cannot be > than toElement
-    	BSTNode from = new BSTNode(fromElement);
-    	BSTNode to = new BSTNode(toElement);
-    	if (from.compareTo(to) > 0)
+    	if (compare(fromElement, toElement) > 0)
     		throw new IllegalArgumentException ("The lower endpoint cannot be greater than the "
     				+ "higher endpoint");
     	
     	//The BST to return
     	BST<T> tree = new BST<>(this.comparator);
     	
-		return getRangeBST(from, to, root, tree);
+    	long compared = getRangeBST(fromElement, toElement, root, tree);
+    	if (Metrics.ENABLED)
+    		Metrics.BST_RANGE.record(compared);
+		return tree;
     }
 
     /**
@@ -292,34 +506,282 @@ public class BST < T extends Comparable <T>> {
      * 
      * @param fromElement - low endpoint (inclusive) of the returned collection
      * @param toElement - high endpoint (inclusive) of the returned collection
-     * @return a collection containing a portion of this tree whose elements range from 
-     * fromElement, inclusive, to toElement, inclusive. BST ordered according to {@code tree}
-     * comparator is returned.
+     * @param tree - the BST the elements in the range are added to, ordered according to 
+     * its own comparator
+     * @return the number of comparisons made
      */
-    private BST<T> getRangeBST(BSTNode fromElement, BSTNode toElement, BSTNode root, 
-    		BST<T> tree) {
-    	if (root == null)
-    		return tree;
+    private long getRangeBST(T fromElement, T toElement, int root, BST<T> tree) {
+    	if (root == NIL)
+    		return 0;
     	
     	//To be included in the BST:
     	//	must be greater than or equal to 0.  
-    	if (root.compareTo(fromElement) < 0)
+    	if (compare(data(root), fromElement) < 0)
     		//The root is too small to be included, so only right elements are possibly included
-    		return getRangeBST(fromElement, toElement, root.right, tree);
+    		return 1 + getRangeBST(fromElement, toElement, right[root], tree);
     	//	must be lesser than or equal to 0.
-    	if (root.compareTo(toElement) > 0) 
+    	if (compare(data(root), toElement) > 0) 
     		//The root is too big to be included, so only left elements are possibly included
-    		return getRangeBST(fromElement, toElement, root.left, tree);
+    		return 2 + getRangeBST(fromElement, toElement, left[root], tree);
     	
     	//root is greater than or equal to fromElement and less than or equal to toElement:
     	//	both sides work, so perform preorder traversal to diminish chance of returning
     	//	a linkedlist-like tree
-    	tree.add(root.data);
-    	getRangeBST(fromElement, toElement, root.left, tree);
-    	getRangeBST(fromElement, toElement, root.right, tree);
-		return tree;
+    	tree.add(data(root));
+    	long compared = 2 + getRangeBST(fromElement, toElement, left[root], tree);
+		return compared + getRangeBST(fromElement, toElement, right[root], tree);
 	}
     
+    /**
+     * Performs the given action for each element from fromElement, inclusive, to toElement, 
+     * inclusive, in the order of this tree, until all matching elements have been visited or 
+     * the action returns false. Unlike {@link BST#getRange(Comparable, Comparable)}, no 
+     * collection is created. The action should not modify this tree. This operation should 
+     * be O(M+H) where M is the number of elements visited.
+     * 
+     * @param fromElement - low endpoint (inclusive) of the visited elements
+     * @param toElement - high endpoint (inclusive) of the visited elements
+     * @param action - the action to perform on each element. Returning false stops the walk.
+     * @return true if all matching elements were visited, false if the action stopped the walk
+     * @throws NullPointerException - if fromElement, toElement or action is null
+     * @throws IllegalArgumentException - if fromElement is greater than toElement
+     */
+    public boolean forEachInRange(T fromElement, T toElement, Predicate<? super T> action) 
+    		throws NullPointerException, IllegalArgumentException {
+    	if (fromElement == null || toElement == null || action == null)
+    		throw new NullPointerException ("The parameters passed in cannot be null");
+    	if (compare(fromElement, toElement) > 0)
+    		throw new IllegalArgumentException ("The lower endpoint cannot be greater than the "
+    				+ "higher endpoint");
+    	//Inorder traversal with an explicit stack, since the tree may be too deep for 
+    	//	recursion. Subtrees below fromElement are skipped on the way down. The node 
+    	//	arrays are read from local variables, so they are not reloaded after every 
+    	//	call to the comparator or the action.
+    	int[] left = this.left;
+    	int[] right = this.right;
+    	IntStack stack = new IntStack();
+    	int node = root;
+    	//The comparisons are counted locally, since the action may walk this tree again
+    	long compared = 0;
+    	boolean completed = true;
+    	while (node != NIL || !stack.isEmpty()) {
+    		while (node != NIL) {
+    			if (Metrics.ENABLED)
+    				compared++;
+    			if (compare(data(node), fromElement) < 0)
+    				node = right[node];
+    			else {
+    				stack.push(node);
+    				node = left[node];
+    			}
+    		}
+    		//Every element left is less than fromElement
+    		if (stack.isEmpty())
+    			break;
+    		node = stack.pop();
+    		//Every element left is greater than toElement
+    		if (Metrics.ENABLED)
+    			compared++;
+    		if (compare(data(node), toElement) > 0)
+    			break;
+    		if (!action.test(data(node))) {
+    			completed = false;
+    			break;
+    		}
+    		node = right[node];
+    	}
+    	if (Metrics.ENABLED)
+    		Metrics.BST_RANGE.record(compared);
+    	return completed;
+    }
+    
+    /**
+     * Returns the number of elements from fromElement, inclusive, to toElement, inclusive. 
+     * The subtree sizes stored in the nodes are used, so the elements do not need to be 
+     * visited. This operation should be O(H).
+     * 
+     * @param fromElement - low endpoint (inclusive) of the counted elements
+     * @param toElement - high endpoint (inclusive) of the counted elements
+     * @return the number of elements of this tree in the range
+     * @throws NullPointerException - if fromElement or toElement is null
+     * @throws IllegalArgumentException - if fromElement is greater than toElement
+     */
+    public int countRange(T fromElement, T toElement) throws NullPointerException, 
+    IllegalArgumentException {
+    	if (fromElement == null || toElement == null)
+    		throw new NullPointerException ("The parameters passed in cannot be null");
+    	if (compare(fromElement, toElement) > 0)
+    		throw new IllegalArgumentException ("The lower endpoint cannot be greater than the "
+    				+ "higher endpoint");
+    	//Elements <= toElement minus elements < fromElement. The comparisons are counted 
+    	//	in a local array, so concurrent readers of this tree do not share any state.
+    	long[] compared = {0};
+    	int count = countBelow(toElement, true, compared) - countBelow(fromElement, false, 
+    			compared);
+    	if (Metrics.ENABLED)
+    		Metrics.BST_RANGE.record(compared[0]);
+    	return count;
+    }
+    
+    /**
+     * Counts the elements less than (or equal to, if inclusive) the given element.
+     * 
+     * @param element - the element to compare to
+     * @param inclusive - whether elements equal to {@code element} are counted
+     * @param compared - its first value is increased by the number of comparisons made
+     * @return the number of elements below {@code element}
+     */
+    private int countBelow(T element, boolean inclusive, long[] compared) {
+    	int count = 0;
+    	int node = root;
+    	while (node != NIL) {
+    		compared[0]++;
+    		int comp = compare(data(node), element);
+    		if (comp < 0 || (comp == 0 && inclusive)) {
+    			//node and its left subtree are all below element
+    			count += size(left[node]) + 1;
+    			node = right[node];
+    		}
+    		else
+    			node = left[node];
+    	}
+    	return count;
+    }
+    
+    /**
+     * Returns the comparator ordering this tree.
+     * 
+     * @return the comparator, null if this tree uses natural ordering
+     */
+    Comparator<T> getComparator() {
+    	return comparator;
+    }
+    
+    /**
+     * Compares two elements using the comparator if there exists one, natural ordering 
+     * otherwise.
+     */
+    private int compare(T o1, T o2) {
+    	if (comparator == null)
+    		return o1.compareTo(o2);
+    	return comparator.compare(o1, o2);
+    }
+    
+    /**
+     * Returns the number of nodes in the subtree rooted at node.
+     */
+    private int size(int node) {
+    	return node == NIL ? 0 : sizes[node];
+    }
+    
+    /**
+     * Returns the element stored in the given node.
+     */
+    @SuppressWarnings("unchecked")
+    private T data(int node) {
+    	return (T) data[node];
+    }
+    
+    /**
+     * Hands out a slot for a new leaf holding the given element: the first slot of the free 
+     * list if there is one, otherwise the next unused slot, growing the arrays by half their 
+     * length when all slots are used. 
+     * 
+     * @return the handle of the new node
+     */
+    private int newNode(T element) {
+    	int node = free;
+    	if (node != NIL)
+    		free = left[node];
+    	else {
+    		if (used == data.length) {
+    			int capacity = Math.max(4, used + (used >> 1));
+    			left = Arrays.copyOf(left, capacity);
+    			right = Arrays.copyOf(right, capacity);
+    			sizes = Arrays.copyOf(sizes, capacity);
+    			data = Arrays.copyOf(data, capacity);
+    		}
+    		node = used++;
+    	}
+    	left[node] = NIL;
+    	right[node] = NIL;
+    	sizes[node] = 1;
+    	data[node] = element;
+    	return node;
+    }
+    
+    /**
+     * Puts the slot of a removed node on the free list. The element is cleared so that the 
+     * tree does not keep it alive.
+     */
+    private void freeNode(int node) {
+    	data[node] = null;
+    	left[node] = free;
+    	free = node;
+    }
+    
+    /**
+     * Replaces all elements of this tree with the given elements. The elements must be sorted 
+     * in strictly increasing order according to the ordering of this tree (natural ordering 
+     * or the comparator), which means there cannot be duplicates. The tree is built perfectly 
+     * balanced instead of adding the elements one by one, which would produce a 
+     * linkedlist-like tree for sorted input. This operation should be O(N).
+     * 
+     * @param sorted - the elements of the new tree, in increasing order
+     * @throws NullPointerException - if sorted or one of its elements is null
+     * @throws IllegalArgumentException - if the elements are not strictly increasing
+     */
+    public void buildBalanced(List<? extends T> sorted) throws NullPointerException, 
+    IllegalArgumentException {
+    	if (sorted == null)
+    		throw new NullPointerException ("The parameter passed in cannot be null");
+    	for (int i = 0; i < sorted.size(); i++) {
+    		if (sorted.get(i) == null)
+    			throw new NullPointerException ("The elements cannot be null");
+    		if (i > 0 && compare(sorted.get(i - 1), sorted.get(i)) >= 0)
+    			throw new IllegalArgumentException ("The elements are not sorted in strictly "
+    					+ "increasing order");
+    	}
+    	//the old nodes are all dropped: the element of index i goes to slot i 
+    	Object[] elements = sorted.toArray();
+    	layOut(elements);
+    }
+    
+    /**
+     * Replaces the nodes of this tree with a perfectly balanced tree of the given elements, 
+     * which are sorted and distinct. The arrays are replaced by arrays of the exact size, 
+     * and the element of index i is stored in slot i, so an inorder walk reads the arrays 
+     * from the first slot to the last instead of jumping around them.
+     */
+    private void layOut(Object[] elements) {
+    	int capacity = elements.length;
+    	left = new int[capacity];
+    	right = new int[capacity];
+    	sizes = new int[capacity];
+    	data = elements;
+    	used = capacity;
+    	free = NIL;
+    	root = layOut(0, capacity - 1);
+    	size = capacity;
+    }
+    
+    /**
+     * Continuation of {@link BST#layOut(Object[])}. Links the slots between index low and 
+     * index high inclusive into a perfectly balanced subtree. Recursive implementation, 
+     * O(log N) deep.
+     * 
+     * @return the root of the subtree, NIL if low is greater than high
+     */
+    private int layOut(int low, int high) {
+    	if (low > high)
+    		return NIL;
+    	int mid = (low + high) >>> 1;
+    	left[mid] = layOut(low, mid - 1);
+    	right[mid] = layOut(mid + 1, high);
+    	sizes[mid] = high - low + 1;
+    	return mid;
+    }
+    
     /**
      * Returns the first (lowest) element currently in this tree. This operation should be O(H).
      * 
@@ -327,13 +789,13 @@ public class BST < T extends Comparable <T>> {
      * @throws NoSuchElementException - if this tree is empty
      */
     public T first() throws NoSuchElementException {
-    	if (root == null)
+    	if (root == NIL)
     		throw new NoSuchElementException("The tree is empty.");
-    	BSTNode first = root;
+    	int first = root;
     	//Find the left-most element
-    	while (first.left != null)
-    		first = first.left;
-		return first.data;	
+    	while (left[first] != NIL)
+    		first = left[first];
+		return data(first);	
     }
     
     /**
@@ -343,13 +805,13 @@ public class BST < T extends Comparable <T>> {
      * @throws NoSuchElementException - if this tree is empty
      */
     public T last() throws NoSuchElementException {
-    	if (root == null)
+    	if (root == NIL)
     		throw new NoSuchElementException("The tree is empty.");
-    	BSTNode last = root;
+    	int last = root;
     	//Find the right-most element
-    	while (last.right != null)
-    		last = last.right;
-		return last.data;	
+    	while (right[last] != NIL)
+    		last = right[last];
+		return data(last);	
     }
     
     /**
@@ -371,8 +833,8 @@ public class BST < T extends Comparable <T>> {
     	if (this.size() != obj2.size()) 
     		return false;
     	
-    	Iterator<T> itr1 = this.iterator();
-		Iterator<T> itr2 = obj2.iterator();
+    	Iterator<T> itr1 = this.inorder();
+		Iterator<T> itr2 = obj2.inorder();
     	//Both iterators have the same number of elements since the BSTs have the same size
     	while (itr1.hasNext()) {
     		//Return false if the objects are not equal
@@ -418,63 +880,172 @@ public class BST < T extends Comparable <T>> {
     	for (int i = 0; i < size; i++) 
     		arr[i] = itr.next();
 		return arr;
-    }
+    }
     
     
     /**
 	 * Adds the specified element to this tree if it is not already present. 
 	 * If this tree already contains the element, the call leaves the 
      * tree unchanged and returns false.
+     * 
+     * Iterative implementation: the tree is not balanced, so sorted input produces 
+     * linkedlist-like trees that are too deep for a recursive implementation.
+     * 
 	 * @param data element to be added to this tree 
      * @return true if this tree did not already contain the specified element 
      * @throws NullPointerException if the specified element is null  
 	 */
     public boolean add ( T data ) { 
-         added = false; 
-         if (data == null) return added; 
-         //replace root with the reference to the tree after the new 
-         //value is added
-         root = add (data, root);
-         //update the size and return the status accordingly 
-         if (added) {
-        	 size++; 
+         if (data == null) return false; 
+         if (root == NIL) {
+             root = newNode(data); 
+             size++; 
+             return true; 
          }
-         return added; 
+         //walk down to the location of the new value, remembering the path 
+         //so that the subtree sizes can be updated once the value is added. The path 
+         //belongs to this call, the tree holds no state between calls 
+         IntStack path = new IntStack(); 
+         int node = root; 
+         while (true) {
+             //compare uses the comparator if there exists one 
+             int comp = compare(data(node), data); 
+             if (comp == 0) { //duplicate found, do not add 
+                 if (Metrics.ENABLED) 
+                     Metrics.BST_ADD.record(path.size() + 1); 
+                 return false; 
+             }
+             path.push(node); 
+             if (comp > 0) { //add to the left subtree 
+                 if (left[node] == NIL) {
+                     //the arrays may grow, so the handle is stored after newNode returns 
+                     int leaf = newNode(data); 
+                     left[node] = leaf; 
+                     break; 
+                 }
+                 node = left[node]; 
+             }
+             else { //add to the right subtree 
+                 if (right[node] == NIL) {
+                     int leaf = newNode(data); 
+                     right[node] = leaf; 
+                     break; 
+                 }
+                 node = right[node]; 
+             }
+         }
+         //every node on the path gained one element in its subtree, and was compared 
+         //once with the new value 
+         for (int i = 0; i < path.size(); i++)
+             sizes[path.get(i)]++; 
+         if (Metrics.ENABLED) 
+             Metrics.BST_ADD.record(path.size()); 
+         size++; 
+         //the new node is path.size() edges below the root 
+         if (rebalanceFactor > 0 && path.size() > rebalanceFactor * log2(size)) 
+             rebuildScapegoat(path); 
+         return true; 
     }
     
     /**
-	 * Actual recursive implementation of add. 
-     *
-     * This function returns a reference to the subtree in which 
-     * the new value was added. 
-	 *
-     * @param data element to be added to this tree 
-     * @param node node at which the recursive call is made 
-	 */
-    private BSTNode add (T data, BSTNode node ) {
-        if (node == null) {
-            added = true; 
-            return new BSTNode(data); 
-        }
-        //decide how comparisons should be done 
-        int comp = 0 ;
-        if (comparator == null ) //use natural ordering of the elements 
-            comp = node.data.compareTo(data); 
-        else                     //use the comparator 
-            comp = comparator.compare(node.data, data ) ;
-        
-        //find the location to add the new value 
-        if (comp > 0 ) { //add to the left subtree 
-            node.left = add(data, node.left); 
-        }
-        else if (comp < 0 ) { //add to the right subtree
-            node.right = add(data, node.right); 
-        }
-        else { //duplicate found, do not add 
-            added = false; 
-            return node; 
-        }
-        return node; 
+     * Makes this tree rebuild part of itself whenever an add leaves a node deeper than 
+     * factor * log2(size) edges below the root, like a scapegoat tree. The rebuilt part is 
+     * the subtree of the lowest ancestor of the new node that is too deep for its own 
+     * size, which is made perfectly balanced in O(K) for a subtree of K nodes. Sorted input 
+     * then costs O(log N) amortized per add instead of producing a linkedlist-like tree. 
+     * Setting a factor on a tree that is already too deep rebuilds the whole tree. 
+     * 
+     * The default is 0: the tree is never rebuilt, and its shape only depends on the order 
+     * of the adds. 
+     * 
+     * @param factor - the largest allowed depth as a multiple of log2(size), greater than 
+     * 1, or 0 to never rebuild; see {@link BST#DEFAULT_REBALANCE_FACTOR} 
+     * @throws IllegalArgumentException - if factor is not 0 and not greater than 1
+     */
+    public void setRebalanceFactor(double factor) throws IllegalArgumentException {
+    	if (factor != 0 && !(factor > 1))
+    		throw new IllegalArgumentException ("The rebalance factor should be 0 or greater "
+    				+ "than 1. Provided factor: " + factor);
+    	rebalanceFactor = factor;
+    	if (factor > 0 && size > 1 && height() - 1 > factor * log2(size))
+    		rebalance();
+    }
+    
+    /**
+     * Rebuilds this tree into a perfectly balanced tree with the same elements. The nodes 
+     * are also moved to new arrays in order, without free slots, so that walks over the 
+     * rebuilt tree read the arrays in sequence. This operation should be O(N).
+     */
+    public void rebalance() {
+    	if (root != NIL)
+    		layOut(toArray());
+    }
+    
+    /**
+     * Rebuilds the subtree of the lowest node on the path of an add whose subtree is 
+     * too deep for its size. The root always is, since the add made the tree too deep.
+     */
+    private void rebuildScapegoat(IntStack path) {
+    	for (int i = path.size() - 1; i >= 0; i--) {
+    		int node = path.get(i);
+    		//the new node is path.size() - i edges below node
+    		if (path.size() - i > rebalanceFactor * log2(sizes[node])) {
+    			int rebuilt = rebuild(node);
+    			if (i == 0)
+    				root = rebuilt;
+    			else if (left[path.get(i - 1)] == node)
+    				left[path.get(i - 1)] = rebuilt;
+    			else
+    				right[path.get(i - 1)] = rebuilt;
+    			return;
+    		}
+    	}
+    }
+    
+    /**
+     * Relinks the nodes of the subtree rooted at node into a perfectly balanced subtree. 
+     * The nodes are collected in order with an explicit stack, since the subtree may be 
+     * too deep for recursion.
+     * 
+     * @return the root of the rebuilt subtree
+     */
+    private int rebuild(int node) {
+    	int[] nodes = new int[sizes[node]];
+    	int count = 0;
+    	IntStack stack = new IntStack();
+    	int current = node;
+    	while (current != NIL || !stack.isEmpty()) {
+    		while (current != NIL) {
+    			stack.push(current);
+    			current = left[current];
+    		}
+    		current = stack.pop();
+    		nodes[count++] = current;
+    		current = right[current];
+    	}
+    	return link(nodes, 0, count - 1);
+    }
+    
+    /**
+     * Continuation of {@link BST#rebuild(int)}. Links the nodes between index low and 
+     * index high inclusive into a perfectly balanced subtree. Recursive implementation, 
+     * O(log K) deep.
+     * 
+     * @return the root of the subtree, NIL if low is greater than high
+     */
+    private int link(int[] nodes, int low, int high) {
+    	if (low > high)
+    		return NIL;
+    	int mid = (low + high) >>> 1;
+    	int node = nodes[mid];
+    	left[node] = link(nodes, low, mid - 1);
+    	right[node] = link(nodes, mid + 1, high);
+    	sizes[node] = high - low + 1;
+    	return node;
+    }
+    
+    private static double log2(int n) {
+    	return Math.log(n) / Math.log(2);
     }
     
     /**
@@ -482,87 +1053,553 @@ public class BST < T extends Comparable <T>> {
 	 * Returns true if this tree contained the element (or equivalently, 
      * if this tree changed as a result of the call). 
      * (This tree will not contain the element once the call returns.)
+     * 
+     * Iterative implementation, see {@link BST#add(Comparable)}.
      * 
 	 * @param target object to be removed from this tree, if present
      * @return true if this set contained the specified element 
      * @throws NullPointerException if the specified element is null  
 	 */
 	public boolean remove(T target) {
-        //replace root with a reference to the tree after target was removed 
-		root = recRemove(target, root);
-        //update the size and return the status accordingly 
-		if (found) size--; 
-		return found;
+		//find the node to remove, remembering the path to it 
+		IntStack path = new IntStack();
+		int parent = NIL;
+		int node = root;
+		while (node != NIL) {
+			int comp = compare(target, data(node));
+			if (comp == 0)
+				break;
+			path.push(node);
+			parent = node;
+			node = comp < 0 ? left[node] : right[node];   
+		}
+		if (node == NIL) //value not found 
+			return false;
+		
+		if (left[node] == NIL) {  //handle the leaf and one child node with right subtree 
+			replaceChild(parent, node, right[node]);
+			freeNode(node);
+		}
+		else if (right[node] == NIL) {  //handle one child node with left subtree 
+			replaceChild(parent, node, left[node]);
+			freeNode(node);
+		}
+		else {                   //handle nodes with two children 
+			//replace the data with the rightmost data of the left subtree (the 
+			//predecessor), then unlink the predecessor, which has no right child 
+			path.push(node);
+			int predParent = node;
+			int pred = left[node];
+			while (right[pred] != NIL) {
+				path.push(pred);
+				predParent = pred;
+				pred = right[pred];
+			}
+			data[node] = data[pred];
+			replaceChild(predParent, pred, left[pred]);
+			freeNode(pred);
+		}
+		//every node on the path lost one element in its subtree 
+		for (int i = 0; i < path.size(); i++)
+			sizes[path.get(i)]--;
+		size--;
+		return true;
 	}
 
-
 	/**
-	 * Actual recursive implementation of remove method: find the node to remove.
-     *
-	 * This function recursively finds and eventually removes the node with the target element 
-     * and returns the reference to the modified tree to the caller. 
-     * 
-	 * @param target object to be removed from this tree, if present
-     * @param node node at which the recursive call is made 
+	 * Replaces the child of parent with the replacement node. The root is replaced if parent 
+	 * is null.
+	 *
+	 * @param parent the parent of child, NIL if child is the root
+	 * @param child the node to replace
+	 * @param replacement the node taking the place of child, may be NIL
 	 */
-	private BSTNode recRemove(T target, BSTNode node) {
-		if (node == null)  { //value not found 
-			found = false;
-            return node; 
-        }
-        
-        //decide how comparisons should be done 
-        int comp = 0 ;
-        if (comparator == null ) //use natural ordering of the elements 
-            comp = target.compareTo(node.data); 
-        else                     //use the comparator 
-            comp = comparator.compare(target, node.data ) ;
+	private void replaceChild(int parent, int child, int replacement) {
+		if (parent == NIL)
+			root = replacement;
+		else if (left[parent] == child)
+			left[parent] = replacement;
+		else
+			right[parent] = replacement;
+	}
 
-        
-		if (comp < 0)       // target might be in a left subtree 
-			node.left = recRemove(target, node.left);
-		else if (comp > 0)  // target might be in a right subtree 
-			node.right = recRemove(target, node.right );
-		else {          // target found, now remove it 
-			node = removeNode(node);
-			found = true;
+	/**
+	 * Adds all the given elements that are not already present, and returns the ones that 
+	 * were added in the ordering of this tree. The batch is sorted once; if it is large 
+	 * compared to the tree, it is merged with an inorder walk of the tree and the tree is 
+	 * rebuilt perfectly balanced in O(N + K), otherwise the elements are added one by one in 
+	 * O(K*H), whichever is cheaper. Of equal elements in the batch only the first one is 
+	 * added.
+	 * 
+	 * @param elements - the elements to add
+	 * @return the added elements in increasing order, empty if all were present
+	 * @throws NullPointerException - if elements or one of the elements is null
+	 */
+	public ArrayList<T> addAll(Collection<? extends T> elements) throws NullPointerException {
+		ArrayList<T> batch = sortedBatch(elements);
+		ArrayList<T> added = new ArrayList<>();
+		if (!mergeIsCheaper(batch.size())) {
+			for (T element : batch) {
+				if (add(element))
+					added.add(element);
+			}
+			return added;
 		}
-		return node;
+		Object[] merged = new Object[size + batch.size()];
+		int count = 0;
+		int i = 0;
+		Iterator<T> itr = inorder();
+		T current = itr.hasNext() ? itr.next() : null;
+		while (current != null || i < batch.size()) {
+			int comp = current == null ? 1 : i == batch.size() ? -1 
+					: compare(current, batch.get(i));
+			if (comp > 0) {
+				merged[count++] = batch.get(i);
+				added.add(batch.get(i++));
+				continue;
+			}
+			//the element of the tree is kept, and an equal element of the batch skipped
+			if (comp == 0)
+				i++;
+			merged[count++] = current;
+			current = itr.hasNext() ? itr.next() : null;
+		}
+		if (!added.isEmpty())
+			layOut(Arrays.copyOf(merged, count));
+		return added;
 	}
-
+	
 	/**
-	 * Actual recursive implementation of remove method: perform the removal.
-	 *
-	 * @param target the item to be removed from this tree
-	 * @return a reference to the node itself, or to the modified subtree
+	 * Removes all the elements of this tree equal to one of the given elements, and returns 
+	 * the removed elements of this tree in the ordering of this tree. Like 
+	 * {@link BST#addAll(Collection)}, the batch is sorted once and either merged with an 
+	 * inorder walk of the tree, which is then rebuilt perfectly balanced from the kept 
+	 * elements in O(N + K), or removed one by one in O(K*H), whichever is cheaper.
+	 * 
+	 * @param elements - the elements to remove
+	 * @return the removed elements of this tree in increasing order, empty if none was 
+	 * present
+	 * @throws NullPointerException - if elements or one of the elements is null
 	 */
-	private BSTNode removeNode(BSTNode node) {
-		T data;
-		if (node.left == null)   //handle the leaf and one child node with right subtree 
-			return node.right ; 
-		else if (node.right  == null)  //handle one child node with left subtree 
-			return node.left;
-		else {                   //handle nodes with two children 
-			data = getPredecessor(node.left);
-			node.data = data;
-			node.left = recRemove(data, node.left);
-			return node;
+	public ArrayList<T> removeAll(Collection<? extends T> elements) throws NullPointerException {
+		ArrayList<T> batch = sortedBatch(elements);
+		ArrayList<T> removed = new ArrayList<>();
+		if (!mergeIsCheaper(batch.size())) {
+			for (T element : batch) {
+				int node = find(element);
+				if (node != NIL) {
+					//the element of the tree may hold more than the one of the batch
+					T stored = data(node);
+					remove(stored);
+					removed.add(stored);
+				}
+			}
+			return removed;
+		}
+		Object[] kept = new Object[size];
+		int count = 0;
+		int i = 0;
+		for (Iterator<T> itr = inorder(); itr.hasNext(); ) {
+			T current = itr.next();
+			while (i < batch.size() && compare(batch.get(i), current) < 0)
+				i++;
+			if (i < batch.size() && compare(batch.get(i), current) == 0)
+				removed.add(current);
+			else
+				kept[count++] = current;
 		}
+		if (!removed.isEmpty())
+			layOut(Arrays.copyOf(kept, count));
+		return removed;
 	}
-
+	
 	/**
-	 * Returns the information held in the rightmost node of subtree
-	 *
-	 * @param subtree root of the subtree within which to search for the rightmost node
-	 * @return returns data stored in the rightmost node of subtree
+	 * Copies the batch of {@link BST#addAll(Collection)} or {@link BST#removeAll(Collection)} 
+	 * and sorts it in the ordering of this tree, keeping only the first of equal elements.
+	 */
+	private ArrayList<T> sortedBatch(Collection<? extends T> elements) 
+			throws NullPointerException {
+		if (elements == null)
+			throw new NullPointerException ("The parameter passed in cannot be null");
+		ArrayList<T> batch = new ArrayList<>(elements);
+		for (T element : batch) {
+			if (element == null)
+				throw new NullPointerException ("The elements cannot be null");
+		}
+		//the sort is stable, so the first of equal elements stays first
+		batch.sort(this::compare);
+		int kept = 0;
+		for (int i = 0; i < batch.size(); i++) {
+			if (kept == 0 || compare(batch.get(kept - 1), batch.get(i)) != 0)
+				batch.set(kept++, batch.get(i));
+		}
+		batch.subList(kept, batch.size()).clear();
+		return batch;
+	}
+	
+	/**
+	 * Returns true if merging a sorted batch of the given size into this tree and rebuilding 
+	 * it, which walks all N + K elements, costs less than K searches of about log2(N) steps.
+	 */
+	private boolean mergeIsCheaper(int batch) {
+		return batch * log2(size + 2) > size + batch;
+	}
+	
+	/**
+	 * Returns the node holding an element equal to target, NIL if there is none. O(H).
+	 */
+	private int find(T target) {
+		int node = root;
+		while (node != NIL) {
+			int comp = compare(target, data(node));
+			if (comp == 0)
+				return node;
+			node = comp < 0 ? left[node] : right[node];
+		}
+		return NIL;
+	}
+	
+	/**
+	 * Removes all elements from fromElement, inclusive, to toElement, inclusive, and returns 
+	 * them in the ordering of this tree. The tree is split at fromElement and at toElement 
+	 * into three trees, the middle one is dropped, and the two others are joined again, so 
+	 * the tree is only walked along two paths and the removed subtrees. This operation 
+	 * should be O(H + K) in which K is the number of removed elements, instead of O(K*H) 
+	 * for K calls to {@link BST#remove(Comparable)}. 
+	 * 
+	 * The join hangs the smaller tree at the depth of the larger tree where the subtrees are 
+	 * about its size. If a rebalance factor is set (see 
+	 * {@link BST#setRebalanceFactor(double)}), the join also rotates the nodes above it 
+	 * like a weight-balanced tree, so that repeated range removals do not make the tree 
+	 * deeper.
+	 * 
+	 * @param fromElement - low endpoint (inclusive) of the removed elements
+	 * @param toElement - high endpoint (inclusive) of the removed elements
+	 * @return the removed elements in increasing order, empty if none was in the range
+	 * @throws NullPointerException - if fromElement or toElement is null
+	 * @throws IllegalArgumentException - if fromElement is greater than toElement
+	 */
+	public ArrayList<T> removeRange(T fromElement, T toElement) throws NullPointerException, 
+	IllegalArgumentException {
+		if (fromElement == null || toElement == null)
+			throw new NullPointerException ("The parameters passed in cannot be null");
+		if (compare(fromElement, toElement) > 0)
+			throw new IllegalArgumentException ("The lower endpoint cannot be greater than the "
+					+ "higher endpoint");
+		ArrayList<T> removed = new ArrayList<>();
+		//the elements below fromElement, then the ones up to toElement and the ones above
+		int[] halves = new int[2];
+		split(root, fromElement, false, halves);
+		int below = halves[0];
+		split(halves[1], toElement, true, halves);
+		int range = halves[0];
+		int above = halves[1];
+		
+		//collect the middle tree in order, freeing every node once its right child is read
+		IntStack stack = new IntStack();
+		int node = range;
+		while (node != NIL || !stack.isEmpty()) {
+			while (node != NIL) {
+				stack.push(node);
+				node = left[node];
+			}
+			node = stack.pop();
+			removed.add(data(node));
+			int next = right[node];
+			freeNode(node);
+			node = next;
+		}
+		root = join(below, above);
+		size -= removed.size();
+		return removed;
+	}
+	
+	/**
+	 * Splits the subtree rooted at node into the tree of the elements smaller than key and 
+	 * the tree of the others, stored in halves[0] and halves[1]. An element 
+	 * equal to key goes to the lower tree if inclusive is true. Iterative implementation: 
+	 * the nodes on the search path for key are handed out to the right spine of the lower 
+	 * tree or to the left spine of the upper tree, and their sizes are fixed on the way 
+	 * back up. O(H).
+	 */
+	private void split(int node, T key, boolean inclusive, int[] halves) {
+		if (rebalanceFactor > 0) {
+			splitBalanced(node, key, inclusive, halves);
+			return;
+		}
+		int lower = NIL;
+		int upper = NIL;
+		//the last node on the right spine of lower and on the left spine of upper
+		int lowerEnd = NIL;
+		int upperEnd = NIL;
+		IntStack lowerSpine = new IntStack();
+		IntStack upperSpine = new IntStack();
+		while (node != NIL) {
+			int comp = compare(data(node), key);
+			if (comp < 0 || (comp == 0 && inclusive)) {
+				//node and its left subtree are lower, its right subtree is split further
+				if (lowerEnd == NIL)
+					lower = node;
+				else
+					right[lowerEnd] = node;
+				lowerEnd = node;
+				lowerSpine.push(node);
+				node = right[node];
+			}
+			else {
+				if (upperEnd == NIL)
+					upper = node;
+				else
+					left[upperEnd] = node;
+				upperEnd = node;
+				upperSpine.push(node);
+				node = left[node];
+			}
+		}
+		if (lowerEnd != NIL)
+			right[lowerEnd] = NIL;
+		if (upperEnd != NIL)
+			left[upperEnd] = NIL;
+		//the deepest nodes of the spines are fixed first
+		halves[0] = lower;
+		halves[1] = upper;
+		while (!lowerSpine.isEmpty()) {
+			int spine = lowerSpine.pop();
+			sizes[spine] = 1 + size(left[spine]) + size(right[spine]);
+		}
+		while (!upperSpine.isEmpty()) {
+			int spine = upperSpine.pop();
+			sizes[spine] = 1 + size(left[spine]) + size(right[spine]);
+		}
+	}
+	
+	/**
+	 * Continuation of {@link BST#split(int, Comparable, boolean, int[])} for trees kept 
+	 * shallow by a rebalance factor. Recursive implementation: the subtree on the side of key is split, 
+	 * and node is joined with its other subtree and the part of the split on that side, so 
+	 * both trees come out weight-balanced. O(H) joins of trees of growing heights.
+	 */
+	private void splitBalanced(int node, T key, boolean inclusive, int[] halves) {
+		if (node == NIL) {
+			halves[0] = NIL;
+			halves[1] = NIL;
+			return;
+		}
+		int comp = compare(data(node), key);
+		if (comp < 0 || (comp == 0 && inclusive)) {
+			int smaller = left[node];
+			splitBalanced(right[node], key, inclusive, halves);
+			halves[0] = join(smaller, node, halves[0]);
+		}
+		else {
+			int larger = right[node];
+			splitBalanced(left[node], key, inclusive, halves);
+			halves[1] = join(halves[1], node, larger);
+		}
+	}
+	
+	/**
+	 * Joins two trees of this tree, every element of low being smaller than every element 
+	 * of high, and returns the root of the joined tree. The first element of high (or the 
+	 * last one of low if low is smaller) is unlinked and becomes the parent of the smaller 
+	 * tree and of the subtree of the larger tree, along its inner spine, that is about the 
+	 * same size. O(H).
+	 */
+	private int join(int low, int high) {
+		if (low == NIL)
+			return high;
+		if (high == NIL)
+			return low;
+		if (rebalanceFactor > 0) {
+			//unlink the first node of high and join around it
+			int pivot = unlinkFirst(high);
+			if (pivot == high)
+				high = right[pivot];
+			return join(low, pivot, high);
+		}
+		if (sizes[low] >= sizes[high]) {
+			//unlink the first node of high
+			int pivot = unlinkFirst(high);
+			if (pivot == high)
+				high = right[pivot];
+			//walk down the right spine of low to a subtree not larger than high
+			int weight = size(high) + 1;
+			int parent = NIL;
+			int node = low;
+			while (node != NIL && sizes[node] > weight) {
+				sizes[node] += weight;
+				parent = node;
+				node = right[node];
+			}
+			left[pivot] = node;
+			right[pivot] = high;
+			sizes[pivot] = size(node) + weight;
+			if (parent == NIL)
+				return pivot;
+			right[parent] = pivot;
+			return low;
+		}
+		//the mirror image: unlink the last node of low, walk down the left spine of high
+		int pivot = unlinkLast(low);
+		if (pivot == low)
+			low = left[pivot];
+		int weight = size(low) + 1;
+		int parent = NIL;
+		int node = high;
+		while (node != NIL && sizes[node] > weight) {
+			sizes[node] += weight;
+			parent = node;
+			node = left[node];
+		}
+		right[pivot] = node;
+		left[pivot] = low;
+		sizes[pivot] = size(node) + weight;
+		if (parent == NIL)
+			return pivot;
+		left[parent] = pivot;
+		return high;
+	}
+	
+	/**
+	 * Joins the trees low and high with the single node pivot between them, keeping the 
+	 * joined tree weight-balanced: the smaller tree is hung along the inner spine of the 
+	 * larger tree where the two are about the same size, and the nodes above it are rotated 
+	 * back into balance on the way up. The recursion is as deep as the spine, so this is 
+	 * only used on trees kept shallow by a rebalance factor. O(H).
+	 * 
+	 * @return the root of the joined tree
 	 */
-	private T getPredecessor(BSTNode subtree) {
-		if (subtree==null) //this should not happen 
-            throw new NullPointerException("getPredecessor called with an empty subtree");
-		BSTNode temp = subtree;
-		while (temp.right  != null)
-			temp = temp.right ;
-		return temp.data;
+	private int join(int low, int pivot, int high) {
+		if (heavier(size(low) + 1, size(high) + 1))
+			return joinRight(low, pivot, high);
+		if (heavier(size(high) + 1, size(low) + 1))
+			return joinLeft(low, pivot, high);
+		return attach(low, pivot, high);
+	}
+	
+	/**
+	 * Continuation of {@link BST#join(int, int, int)} when low is the heavier tree: the 
+	 * pivot and high are joined into the right spine of low.
+	 */
+	private int joinRight(int low, int pivot, int high) {
+		if (!heavier(size(low) + 1, size(high) + 1))
+			return attach(low, pivot, high);
+		int joined = joinRight(right[low], pivot, high);
+		right[low] = joined;
+		sizes[low] = 1 + size(left[low]) + sizes[joined];
+		int weight = size(left[low]) + 1;
+		if (!heavier(sizes[joined] + 1, weight))
+			return low;
+		//a single rotation if the inner subtree of joined is small enough, double otherwise
+		int inner = size(left[joined]) + 1;
+		if (like(weight, inner) && like(weight + inner, size(right[joined]) + 1))
+			return rotateLeft(low);
+		right[low] = rotateRight(joined);
+		return rotateLeft(low);
+	}
+	
+	/**
+	 * The mirror image of {@link BST#joinRight(int, int, int)}: the pivot and low are 
+	 * joined into the left spine of high.
+	 */
+	private int joinLeft(int low, int pivot, int high) {
+		if (!heavier(size(high) + 1, size(low) + 1))
+			return attach(low, pivot, high);
+		int joined = joinLeft(low, pivot, left[high]);
+		left[high] = joined;
+		sizes[high] = 1 + sizes[joined] + size(right[high]);
+		int weight = size(right[high]) + 1;
+		if (!heavier(sizes[joined] + 1, weight))
+			return high;
+		int inner = size(right[joined]) + 1;
+		if (like(weight, inner) && like(weight + inner, size(left[joined]) + 1))
+			return rotateRight(high);
+		left[high] = rotateLeft(joined);
+		return rotateRight(high);
+	}
+	
+	/**
+	 * Returns true if a subtree of the given weight (its size plus 1) is too heavy to be 
+	 * the sibling of a subtree of the other weight in a weight-balanced tree, which allows 
+	 * a subtree at most 1 - 1/sqrt(2), about 29%, of the weight of its parent at the lightest.
+	 */
+	private static boolean heavier(int weight, int other) {
+		return other < 0.29 * ((long) weight + other);
+	}
+	
+	/**
+	 * Returns true if subtrees of the two weights can be siblings in a weight-balanced tree.
+	 */
+	private static boolean like(int weight, int other) {
+		return !heavier(weight, other) && !heavier(other, weight);
+	}
+	
+	/**
+	 * Makes pivot the parent of low and high and returns it.
+	 */
+	private int attach(int low, int pivot, int high) {
+		left[pivot] = low;
+		right[pivot] = high;
+		sizes[pivot] = 1 + size(low) + size(high);
+		return pivot;
+	}
+	
+	/**
+	 * Rotates the right child of node above it and returns the new root of the subtree.
+	 */
+	private int rotateLeft(int node) {
+		int child = right[node];
+		right[node] = left[child];
+		left[child] = node;
+		sizes[node] = 1 + size(left[node]) + size(right[node]);
+		sizes[child] = 1 + sizes[node] + size(right[child]);
+		return child;
+	}
+	
+	/**
+	 * Rotates the left child of node above it and returns the new root of the subtree.
+	 */
+	private int rotateRight(int node) {
+		int child = left[node];
+		left[node] = right[child];
+		right[child] = node;
+		sizes[node] = 1 + size(left[node]) + size(right[node]);
+		sizes[child] = 1 + size(left[child]) + sizes[node];
+		return child;
+	}
+	
+	/**
+	 * Unlinks the first node of the subtree rooted at node and returns it. The sizes on the 
+	 * path are decremented. If the returned node is the root itself, its right subtree is 
+	 * the new root. O(H).
+	 */
+	private int unlinkFirst(int node) {
+		int parent = NIL;
+		while (left[node] != NIL) {
+			sizes[node]--;
+			parent = node;
+			node = left[node];
+		}
+		if (parent != NIL)
+			left[parent] = right[node];
+		return node;
+	}
+	
+	/**
+	 * Unlinks the last node of the subtree rooted at node and returns it. The sizes on the 
+	 * path are decremented. If the returned node is the root itself, its left subtree is 
+	 * the new root. O(H).
+	 */
+	private int unlinkLast(int node) {
+		int parent = NIL;
+		while (right[node] != NIL) {
+			sizes[node]--;
+			parent = node;
+			node = right[node];
+		}
+		if (parent != NIL)
+			right[parent] = left[node];
+		return node;
 	}
 
 
@@ -574,6 +1611,122 @@ public class BST < T extends Comparable <T>> {
 		return size;
 	}
 
+	/**
+	 * Returns the height of this tree: the number of nodes on the longest path from the root 
+	 * to a leaf, 0 for an empty tree. This operation is O(N), see {@link BST#shapeStats()}.
+	 * @return the height of this tree
+	 */
+	public int height() {
+		return shapeStats().getHeight();
+	}
+
+	/**
+	 * Measures the shape of this tree: its height, the depth of its nodes and how far it is 
+	 * from a perfectly balanced tree. Unlike {@link BST#toStringTree()}, this is cheap to 
+	 * read for large trees. Iterative implementation (level by level), since the tree may 
+	 * be too deep for recursion. This operation is O(N).
+	 * @return the shape of this tree
+	 */
+	public ShapeStats shapeStats() {
+		//number of nodes at every depth
+		int[] depths = new int[16];
+		int height = 0;
+		//the nodes of the current level, then the nodes of the next level 
+		IntStack level = new IntStack();
+		IntStack next = new IntStack();
+		if (root != NIL)
+			level.push(root);
+		while (!level.isEmpty()) {
+			if (height == depths.length)
+				depths = Arrays.copyOf(depths, height * 2);
+			depths[height] = level.size();
+			height++;
+			while (!level.isEmpty()) {
+				int node = level.pop();
+				if (left[node] != NIL)
+					next.push(left[node]);
+				if (right[node] != NIL)
+					next.push(right[node]);
+			}
+			IntStack swap = level;
+			level = next;
+			next = swap;
+		}
+		return new ShapeStats(size, Arrays.copyOf(depths, height));
+	}
+	
+	/**
+	 * The shape of a tree, see {@link BST#shapeStats()}. The root is at depth 0.
+	 */
+	public static class ShapeStats {
+		private int size;
+		//number of nodes at every depth
+		private int[] depths;
+		
+		private ShapeStats(int size, int[] depths) {
+			this.size = size;
+			this.depths = depths;
+		}
+		
+		/**
+		 * @return the number of nodes of the tree
+		 */
+		public int getSize() {
+			return size;
+		}
+		
+		/**
+		 * @return the number of nodes on the longest path from the root to a leaf
+		 */
+		public int getHeight() {
+			return depths.length;
+		}
+		
+		/**
+		 * @return the depth of the deepest node, -1 for an empty tree
+		 */
+		public int getMaxDepth() {
+			return depths.length - 1;
+		}
+		
+		/**
+		 * @return the average depth of the nodes, 0 for an empty tree
+		 */
+		public double getAverageDepth() {
+			long total = 0;
+			for (int d = 0; d < depths.length; d++)
+				total += (long) d * depths[d];
+			return size == 0 ? 0 : (double) total / size;
+		}
+		
+		/**
+		 * @return the number of nodes at every depth, indexed by depth
+		 */
+		public int[] getDepthHistogram() {
+			return depths.clone();
+		}
+		
+		/**
+		 * @return the height divided by the height of a perfectly balanced tree of the 
+		 * same size: 1 for a balanced tree, size / log2(size) for a linkedlist-like tree
+		 */
+		public double getImbalance() {
+			if (size == 0)
+				return 1;
+			//a perfectly balanced tree has floor(log2(size)) + 1 levels
+			return (double) depths.length / (32 - Integer.numberOfLeadingZeros(size));
+		}
+		
+		/**
+		 * @return the shape as "N nodes, height H, average depth A, imbalance I"
+		 */
+		@Override
+		public String toString() {
+			return String.format("%d nodes, height %d, average depth %.1f, imbalance %.2f", 
+					size, getHeight(), getAverageDepth(), getImbalance());
+		}
+	}
+
 	/**
 	 * Create a tree representation as a string
 	 * 
@@ -593,7 +1746,7 @@ public class BST < T extends Comparable <T>> {
      * @param node - the node to add to sb
      * @param level - level of the tree
      */
-    private void toStringTree( StringBuffer sb, BSTNode node, int level ) {
+    private void toStringTree( StringBuffer sb, int node, int level ) {
         //display the node 
         if (level > 0 ) {
             for (int i = 0; i < level-1; i++) {
@@ -601,48 +1754,51 @@ public class BST < T extends Comparable <T>> {
             }
             sb.append("|--");
         }
-        if (node == null) {
+        if (node == NIL) {
             sb.append( "->\n"); 
             return;
         }
         else {
-            sb.append( node.data + "\n"); 
+            sb.append( data[node] + "\n"); 
         }
 
         //display the left subtree 
-        toStringTree(sb, node.left, level+1); 
+        toStringTree(sb, left[node], level+1); 
         //display the right subtree 
-        toStringTree(sb, node.right, level+1); 
+        toStringTree(sb, right[node], level+1); 
     }
 
 
     /**
-     * Node class for this BST 
+     * A growable stack of node handles, used instead of a stack of Integer objects by the 
+     * walks that cannot recurse.
      * 
-     * @author Joanna Klukowska
-     */ 
-    private class BSTNode implements Comparable < BSTNode > {
-
-        T data;
-        BSTNode  left;
-        BSTNode  right;
-
-        public BSTNode ( T data ) {
-            this.data = data;
-        }
-
-        @SuppressWarnings("unused")
-		public BSTNode (T data, BSTNode left, BSTNode right ) {
-            this.data = data;
-            this.left = left;
-            this.right = right;
-        }
-
-        public int compareTo ( BSTNode other ) {
-            if (BST.this.comparator == null )
-                return this.data.compareTo ( other.data );
-            else 
-                return comparator.compare(this.data, other.data); 
-        }
+     * @author Jonason Wu
+     */
+    private static class IntStack {
+    	private int[] nodes = new int[16];
+    	private int size;
+    	
+    	void push(int node) {
+    		if (size == nodes.length)
+    			nodes = Arrays.copyOf(nodes, size * 2);
+    		nodes[size++] = node;
+    	}
+    	
+    	int pop() {
+    		return nodes[--size];
+    	}
+    	
+    	int get(int i) {
+    		return nodes[i];
+    	}
+    	
+    	int size() {
+    		return size;
+    	}
+    	
+    	boolean isEmpty() {
+    		return size == 0;
+    	}
     }
 }
@@ -0,0 +1,186 @@
+package project5;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * This class is a {@link MeteoriteIndex} over categorical attributes of the Meteorite objects,
+ * such as the class or the fall (see {@link Meteorite#getCategoryCode(int)}). Every stored
+ * Meteorite gets a record ordinal, and for every value of every attribute a
+ * {@link CompressedBitmap} holds the ordinals of the Meteorite objects with that value. A
+ * filter on several attributes is then the intersection of a few bitmaps, computed with
+ * bitwise operations, and only the Meteorite objects of the result are read.
+ *
+ * The ordinals of removed Meteorite objects are given to the next added ones, so the ordinals
+ * stay dense and the bitmaps small.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class BitmapIndex extends MeteoriteIndex {
+	//The dictionary code of every attribute of a Meteorite, -1 if it is undefined
+	private ArrayList<ToIntFunction<Meteorite>> attributes = new ArrayList<>();
+	//For every attribute, the bitmap of every code. null until the code is first stored.
+	private ArrayList<ArrayList<CompressedBitmap>> bitmaps = new ArrayList<>();
+	//The Meteorite of every ordinal, null for free ordinals
+	private ArrayList<Meteorite> records = new ArrayList<>();
+	//The ordinal of every stored Meteorite
+	private HashMap<Meteorite, Integer> ordinals = new HashMap<>();
+	//The free ordinals, used as a stack
+	private int[] free = new int[16];
+	private int freeCount = 0;
+
+	/**
+	 * Creates an empty index over the given attributes. The attributes are numbered in the
+	 * order they are given, starting at 0.
+	 *
+	 * @param name the name of the index
+	 * @param present the predicate that decides which meteorites are stored in the index,
+	 * null if every meteorite should be stored
+	 * @param attributes the functions returning the dictionary code of each attribute of a
+	 * Meteorite, -1 if the Meteorite does not define it
+	 * @throws NullPointerException if name or one of the attributes is null
+	 */
+	@SafeVarargs
+	public BitmapIndex(String name, Predicate<Meteorite> present,
+			ToIntFunction<Meteorite>... attributes) throws NullPointerException {
+		super(name, present);
+		for (ToIntFunction<Meteorite> attribute : attributes) {
+			if (attribute == null)
+				throw new NullPointerException("The attributes of an index cannot be null");
+			this.attributes.add(attribute);
+			bitmaps.add(new ArrayList<>());
+		}
+	}
+
+	@Override
+	boolean insert(Meteorite m) {
+		if (ordinals.containsKey(m))
+			return false;
+		int ordinal;
+		if (freeCount > 0)
+			ordinal = free[--freeCount];
+		else {
+			ordinal = records.size();
+			records.add(null);
+		}
+		records.set(ordinal, m);
+		ordinals.put(m, ordinal);
+		for (int a = 0; a < attributes.size(); a++) {
+			int code = attributes.get(a).applyAsInt(m);
+			if (code >= 0)
+				bitmap(a, code).add(ordinal);
+		}
+		return true;
+	}
+
+	@Override
+	boolean delete(Meteorite m) {
+		Integer ordinal = ordinals.remove(m);
+		if (ordinal == null)
+			return false;
+		//Use the stored Meteorite, m may only be equal to it
+		Meteorite stored = records.set(ordinal, null);
+		for (int a = 0; a < attributes.size(); a++) {
+			int code = attributes.get(a).applyAsInt(stored);
+			if (code >= 0)
+				bitmap(a, code).remove(ordinal);
+		}
+		if (freeCount == free.length)
+			free = Arrays.copyOf(free, freeCount * 2);
+		free[freeCount++] = ordinal;
+		return true;
+	}
+
+	@Override
+	void clear() {
+		for (ArrayList<CompressedBitmap> attribute : bitmaps)
+			attribute.clear();
+		records = new ArrayList<>();
+		ordinals = new HashMap<>();
+		freeCount = 0;
+	}
+
+	@Override
+	public int size() {
+		return ordinals.size();
+	}
+
+	/**
+	 * Returns the bitmap of the code, creating it if needed.
+	 */
+	private CompressedBitmap bitmap(int attribute, int code) {
+		ArrayList<CompressedBitmap> codes = bitmaps.get(attribute);
+		while (codes.size() <= code)
+			codes.add(null);
+		CompressedBitmap bitmap = codes.get(code);
+		if (bitmap == null) {
+			bitmap = new CompressedBitmap();
+			codes.set(code, bitmap);
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Returns the ordinals of the Meteorite objects whose attribute has the given code. The
+	 * returned bitmap belongs to the index and should not be modified; combine it with
+	 * {@link CompressedBitmap#and(CompressedBitmap)} and {@link
+	 * CompressedBitmap#or(CompressedBitmap)}, which return new bitmaps.
+	 *
+	 * @param attribute the number of the attribute
+	 * @param code the dictionary code of the value
+	 * @return the ordinals of the matching Meteorite objects, empty if there are none
+	 * @throws IndexOutOfBoundsException if the attribute does not exist
+	 */
+	public CompressedBitmap get(int attribute, int code) throws IndexOutOfBoundsException {
+		ArrayList<CompressedBitmap> codes = bitmaps.get(attribute);
+		if (code < 0 || code >= codes.size() || codes.get(code) == null)
+			return new CompressedBitmap();
+		return codes.get(code);
+	}
+
+	/**
+	 * Returns the number of Meteorite objects whose attribute has the given code.
+	 *
+	 * @param attribute the number of the attribute
+	 * @param code the dictionary code of the value
+	 * @return the number of matching Meteorite objects
+	 * @throws IndexOutOfBoundsException if the attribute does not exist
+	 */
+	public int count(int attribute, int code) throws IndexOutOfBoundsException {
+		return get(attribute, code).cardinality();
+	}
+
+	/**
+	 * Returns the ordinals of the given Meteorite objects, for example of the result of a
+	 * mass or year query, so that they can be intersected with the bitmaps of this index.
+	 * Meteorite objects that are not stored in this index are ignored.
+	 *
+	 * @param itr the Meteorite objects to look up
+	 * @return the ordinals of the stored Meteorite objects
+	 */
+	public CompressedBitmap select(Iterator<Meteorite> itr) {
+		CompressedBitmap result = new CompressedBitmap();
+		while (itr.hasNext()) {
+			Integer ordinal = ordinals.get(itr.next());
+			if (ordinal != null)
+				result.add(ordinal);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the Meteorite with the given ordinal.
+	 *
+	 * @param ordinal an ordinal returned in one of the bitmaps of this index
+	 * @return the Meteorite with that ordinal, null if the ordinal is free
+	 * @throws IndexOutOfBoundsException if the ordinal was never given out
+	 */
+	public Meteorite getRecord(int ordinal) throws IndexOutOfBoundsException {
+		return records.get(ordinal);
+	}
+}
@@ -0,0 +1,97 @@
+package project5;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * This class assigns a small integer code to every distinct value of a categorical attribute
+ * of the {@link Meteorite} objects (for example the class "L6" or the fall "Found"), so that
+ * each Meteorite stores a short code instead of its own copy of the text, and filters compare
+ * codes instead of strings. The codes are given in order of first appearance, starting at 0,
+ * and never change.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class CategoryDictionary {
+	/** The largest number of values a dictionary can hold, so that codes fit in a short. */
+	public static final int MAX_VALUES = Short.MAX_VALUE + 1;
+
+	//The code of every value
+	private HashMap<String, Integer> codes = new HashMap<>();
+	//The value of every code, and its UTF-8 encoding used by MutationLog
+	private ArrayList<String> values = new ArrayList<>();
+	private ArrayList<byte[]> encoded = new ArrayList<>();
+
+	/**
+	 * Returns the code of the value, adding the value to the dictionary if it is new.
+	 *
+	 * @param value the value to encode
+	 * @return the code of {@code value}
+	 * @throws IllegalArgumentException if value is null or empty, or if the dictionary is
+	 * full
+	 */
+	public synchronized int encode(String value) throws IllegalArgumentException {
+		if (value == null || value.isEmpty())
+			throw new IllegalArgumentException("A valid category is a non-empty string.");
+		Integer code = codes.get(value);
+		if (code != null)
+			return code;
+		if (values.size() == MAX_VALUES)
+			throw new IllegalArgumentException("The dictionary cannot hold more than "
+					+ MAX_VALUES + " values. Provided value: " + value);
+		codes.put(value, values.size());
+		values.add(value);
+		encoded.add(value.getBytes(StandardCharsets.UTF_8));
+		return values.size() - 1;
+	}
+
+	/**
+	 * Returns the code of the value without adding it. If the value is not in the dictionary,
+	 * a value that only differs in case is looked for, so that users may type "found" for
+	 * "Found".
+	 *
+	 * @param value the value to look up
+	 * @return the code of {@code value}, -1 if the dictionary does not hold it
+	 */
+	public synchronized int lookup(String value) {
+		if (value == null)
+			return -1;
+		Integer code = codes.get(value);
+		if (code != null)
+			return code;
+		for (int i = 0; i < values.size(); i++) {
+			if (values.get(i).equalsIgnoreCase(value))
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the value of the code.
+	 *
+	 * @param code the code of the value, -1 for an undefined value
+	 * @return the value with that code, null if code is -1
+	 * @throws IndexOutOfBoundsException if the code was never given out
+	 */
+	public synchronized String decode(int code) throws IndexOutOfBoundsException {
+		return code == -1 ? null : values.get(code);
+	}
+
+	/**
+	 * Returns the UTF-8 encoding of the value of the code, shared by every caller.
+	 */
+	synchronized byte[] bytes(int code) {
+		return encoded.get(code);
+	}
+
+	/**
+	 * Returns the number of values in the dictionary.
+	 *
+	 * @return the number of codes given out
+	 */
+	public synchronized int size() {
+		return values.size();
+	}
+}
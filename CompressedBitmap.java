@@ -0,0 +1,400 @@
+package project5;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * This class is a compressed set of non-negative int values, organized like a Roaring bitmap.
+ * The values are grouped by their high 16 bits; the low 16 bits of each group are stored in a
+ * container that is a sorted array of chars while the group holds at most 4096 values, and a
+ * bitset of 65536 bits (8 kB) once it holds more. Sparse groups thus take 2 bytes per value
+ * and dense groups at most 1 bit per possible value, and the intersection and union of two
+ * bitmaps combine the containers word by word or by merging.
+ *
+ * Used by {@link BitmapIndex} to keep the record ordinals of the Meteorite objects that share
+ * a categorical value.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class CompressedBitmap {
+	//A container becomes a bitset above this many values, and an array again below half of it
+	private static final int ARRAY_LIMIT = 4096;
+	//Number of longs in a bitset container
+	private static final int WORDS = 1024;
+
+	//The high 16 bits of the groups in increasing order, and the container of each group
+	private char[] keys = new char[4];
+	private Container[] containers = new Container[4];
+	//The number of groups
+	private int count = 0;
+	//The number of values in all groups
+	private int cardinality = 0;
+
+	/**
+	 * Adds the value to the bitmap.
+	 *
+	 * @param value the value to add
+	 * @return true if the value was not in the bitmap yet
+	 * @throws IllegalArgumentException if value is negative
+	 */
+	public boolean add(int value) throws IllegalArgumentException {
+		if (value < 0)
+			throw new IllegalArgumentException("Only non-negative values can be stored. "
+					+ "Provided value: " + value);
+		char key = (char) (value >>> 16);
+		int i = find(key);
+		if (i < 0) {
+			i = -i - 1;
+			insertGroup(i, key, new Container());
+		}
+		if (!containers[i].add((char) value))
+			return false;
+		cardinality++;
+		return true;
+	}
+
+	/**
+	 * Removes the value from the bitmap.
+	 *
+	 * @param value the value to remove
+	 * @return true if the value was in the bitmap
+	 */
+	public boolean remove(int value) {
+		if (value < 0)
+			return false;
+		int i = find((char) (value >>> 16));
+		if (i < 0 || !containers[i].remove((char) value))
+			return false;
+		cardinality--;
+		//Do not keep empty groups
+		if (containers[i].cardinality == 0) {
+			System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+			System.arraycopy(containers, i + 1, containers, i, count - i - 1);
+			count--;
+			containers[count] = null;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds out whether the value is in the bitmap.
+	 *
+	 * @param value the value to look for
+	 * @return true if the bitmap holds {@code value}
+	 */
+	public boolean contains(int value) {
+		if (value < 0)
+			return false;
+		int i = find((char) (value >>> 16));
+		return i >= 0 && containers[i].contains((char) value);
+	}
+
+	/**
+	 * Returns the number of values in the bitmap.
+	 *
+	 * @return the number of values
+	 */
+	public int cardinality() {
+		return cardinality;
+	}
+
+	/**
+	 * Finds out whether the bitmap holds no value.
+	 *
+	 * @return true if the bitmap is empty
+	 */
+	public boolean isEmpty() {
+		return cardinality == 0;
+	}
+
+	/**
+	 * Returns the values held by both this bitmap and the other one. Neither bitmap changes.
+	 *
+	 * @param other the bitmap to intersect with
+	 * @return a new bitmap with the common values
+	 * @throws NullPointerException if other is null
+	 */
+	public CompressedBitmap and(CompressedBitmap other) throws NullPointerException {
+		if (other == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		CompressedBitmap result = new CompressedBitmap();
+		int i = 0;
+		int j = 0;
+		//Only the groups present in both bitmaps can hold common values
+		while (i < this.count && j < other.count) {
+			if (this.keys[i] < other.keys[j])
+				i++;
+			else if (this.keys[i] > other.keys[j])
+				j++;
+			else {
+				Container both = Container.and(this.containers[i], other.containers[j]);
+				if (both.cardinality > 0) {
+					result.insertGroup(result.count, this.keys[i], both);
+					result.cardinality += both.cardinality;
+				}
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the values held by this bitmap or the other one. Neither bitmap changes.
+	 *
+	 * @param other the bitmap to unite with
+	 * @return a new bitmap with the values of both bitmaps
+	 * @throws NullPointerException if other is null
+	 */
+	public CompressedBitmap or(CompressedBitmap other) throws NullPointerException {
+		if (other == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		CompressedBitmap result = new CompressedBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < this.count || j < other.count) {
+			Container group;
+			char key;
+			if (j == other.count || (i < this.count && this.keys[i] < other.keys[j])) {
+				key = this.keys[i];
+				group = this.containers[i++].copy();
+			}
+			else if (i == this.count || this.keys[i] > other.keys[j]) {
+				key = other.keys[j];
+				group = other.containers[j++].copy();
+			}
+			else {
+				key = this.keys[i];
+				group = Container.or(this.containers[i++], other.containers[j++]);
+			}
+			result.insertGroup(result.count, key, group);
+			result.cardinality += group.cardinality;
+		}
+		return result;
+	}
+
+	/**
+	 * Performs the given action for every value of the bitmap, in increasing order.
+	 *
+	 * @param action the action performed on each value
+	 */
+	public void forEach(IntConsumer action) {
+		for (int i = 0; i < count; i++)
+			containers[i].forEach(keys[i] << 16, action);
+	}
+
+	/**
+	 * Finds the group with the given high 16 bits by binary search.
+	 *
+	 * @return the position of the group, or (-(insertion point) - 1) if there is none
+	 */
+	private int find(char key) {
+		return Arrays.binarySearch(keys, 0, count, key);
+	}
+
+	private void insertGroup(int i, char key, Container container) {
+		if (count == keys.length) {
+			keys = Arrays.copyOf(keys, count * 2);
+			containers = Arrays.copyOf(containers, count * 2);
+		}
+		System.arraycopy(keys, i, keys, i + 1, count - i);
+		System.arraycopy(containers, i, containers, i + 1, count - i);
+		keys[i] = key;
+		containers[i] = container;
+		count++;
+	}
+
+	/**
+	 * The low 16 bits of the values of one group, either as a sorted array or as a bitset.
+	 */
+	private static class Container {
+		//The sorted values while the container is an array, null when it is a bitset
+		char[] values = new char[4];
+		//One bit per possible value when the container is a bitset, null when it is an array
+		long[] bits = null;
+		int cardinality = 0;
+
+		boolean contains(char v) {
+			if (bits != null)
+				return (bits[v >>> 6] & (1L << v)) != 0;
+			return Arrays.binarySearch(values, 0, cardinality, v) >= 0;
+		}
+
+		boolean add(char v) {
+			if (bits != null) {
+				long word = bits[v >>> 6];
+				bits[v >>> 6] = word | (1L << v);
+				if (bits[v >>> 6] == word)
+					return false;
+				cardinality++;
+				return true;
+			}
+			int i = Arrays.binarySearch(values, 0, cardinality, v);
+			if (i >= 0)
+				return false;
+			if (cardinality == ARRAY_LIMIT) {
+				toBits();
+				return add(v);
+			}
+			i = -i - 1;
+			if (cardinality == values.length)
+				values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, cardinality * 2));
+			System.arraycopy(values, i, values, i + 1, cardinality - i);
+			values[i] = v;
+			cardinality++;
+			return true;
+		}
+
+		boolean remove(char v) {
+			if (bits != null) {
+				long word = bits[v >>> 6];
+				bits[v >>> 6] = word & ~(1L << v);
+				if (bits[v >>> 6] == word)
+					return false;
+				cardinality--;
+				//Stay a bitset for a while so that alternating adds and removes are cheap
+				if (cardinality <= ARRAY_LIMIT / 2)
+					toArray();
+				return true;
+			}
+			int i = Arrays.binarySearch(values, 0, cardinality, v);
+			if (i < 0)
+				return false;
+			System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+			cardinality--;
+			return true;
+		}
+
+		void toBits() {
+			long[] b = new long[WORDS];
+			for (int i = 0; i < cardinality; i++)
+				b[values[i] >>> 6] |= 1L << values[i];
+			bits = b;
+			values = null;
+		}
+
+		void toArray() {
+			char[] a = new char[Math.max(4, cardinality)];
+			int n = 0;
+			for (int w = 0; w < WORDS; w++) {
+				long word = bits[w];
+				while (word != 0) {
+					a[n++] = (char) (w * 64 + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			values = a;
+			bits = null;
+		}
+
+		Container copy() {
+			Container c = new Container();
+			c.values = values == null ? null : values.clone();
+			c.bits = bits == null ? null : bits.clone();
+			c.cardinality = cardinality;
+			return c;
+		}
+
+		void forEach(int high, IntConsumer action) {
+			if (bits == null) {
+				for (int i = 0; i < cardinality; i++)
+					action.accept(high | values[i]);
+				return;
+			}
+			for (int w = 0; w < WORDS; w++) {
+				long word = bits[w];
+				while (word != 0) {
+					action.accept(high | (w * 64 + Long.numberOfTrailingZeros(word)));
+					word &= word - 1;
+				}
+			}
+		}
+
+		static Container and(Container a, Container b) {
+			Container result = new Container();
+			if (a.bits != null && b.bits != null) {
+				//Two bitsets: AND them word by word
+				long[] bits = new long[WORDS];
+				int n = 0;
+				for (int w = 0; w < WORDS; w++) {
+					bits[w] = a.bits[w] & b.bits[w];
+					n += Long.bitCount(bits[w]);
+				}
+				result.bits = bits;
+				result.values = null;
+				result.cardinality = n;
+				if (n <= ARRAY_LIMIT)
+					result.toArray();
+				return result;
+			}
+			//At least one array: keep the values of the smaller array found in the other one
+			if (a.bits != null || (b.bits == null && b.cardinality < a.cardinality)) {
+				Container swap = a;
+				a = b;
+				b = swap;
+			}
+			char[] values = new char[Math.max(4, a.cardinality)];
+			int n = 0;
+			for (int i = 0; i < a.cardinality; i++) {
+				if (b.contains(a.values[i]))
+					values[n++] = a.values[i];
+			}
+			result.values = values;
+			result.cardinality = n;
+			return result;
+		}
+
+		static Container or(Container a, Container b) {
+			Container result = new Container();
+			if (a.bits != null || b.bits != null) {
+				//At least one bitset: set the bits of the other container in a copy of it
+				if (a.bits == null) {
+					Container swap = a;
+					a = b;
+					b = swap;
+				}
+				long[] bits = a.bits.clone();
+				if (b.bits != null) {
+					for (int w = 0; w < WORDS; w++)
+						bits[w] |= b.bits[w];
+				}
+				else {
+					for (int i = 0; i < b.cardinality; i++)
+						bits[b.values[i] >>> 6] |= 1L << b.values[i];
+				}
+				int n = 0;
+				for (int w = 0; w < WORDS; w++)
+					n += Long.bitCount(bits[w]);
+				result.bits = bits;
+				result.values = null;
+				result.cardinality = n;
+				return result;
+			}
+			//Two arrays: merge them
+			char[] values = new char[a.cardinality + b.cardinality];
+			int i = 0;
+			int j = 0;
+			int n = 0;
+			while (i < a.cardinality && j < b.cardinality) {
+				if (a.values[i] < b.values[j])
+					values[n++] = a.values[i++];
+				else if (a.values[i] > b.values[j])
+					values[n++] = b.values[j++];
+				else {
+					values[n++] = a.values[i++];
+					j++;
+				}
+			}
+			while (i < a.cardinality)
+				values[n++] = a.values[i++];
+			while (j < b.cardinality)
+				values[n++] = b.values[j++];
+			result.values = values;
+			result.cardinality = n;
+			if (n > ARRAY_LIMIT)
+				result.toBits();
+			return result;
+		}
+	}
+}
@@ -0,0 +1,354 @@
+package project5;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * This class stores Meteorite objects for many threads at once, for example while new finds
+ * are streamed in and queries are served at the same time. Like {@link MeteoriteData}, it
+ * keeps all Meteorite objects in natural ordering, the ones with a valid mass ordered by mass
+ * and the ones with a valid year ordered by year, using the same comparators. Each ordering is
+ * a {@link ConcurrentSkipListSet}, which threads update without a global lock.
+ *
+ * An add or a remove updates the three sets while holding one of a few locks picked by the
+ * hash code of the Meteorite, so two threads only wait for each other when they change equal
+ * Meteorite objects (or ones sharing a lock), and the three sets always agree once the call
+ * returns. Reads never lock: the iterator and the range queries are weakly consistent. They
+ * never throw {@link java.util.ConcurrentModificationException} and see every Meteorite that
+ * was in the collection for the whole walk, but may or may not see the ones added or removed
+ * during the walk, and may see a Meteorite in one ordering before it is in the others.
+ *
+ * The other queries of {@link MeteoriteData} (location, names, categories, caches and logs)
+ * are not offered here; take a {@link ConcurrentMeteoriteData#snapshot()} for them. With
+ * "--watch", {@link FallenStars} keeps one next to its MeteoriteData: the watcher adds the
+ * new rows to both, and the year and mass queries read this one without waiting for it.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class ConcurrentMeteoriteData {
+	//Number of locks serializing the changes of equal Meteorite objects, a power of 2
+	private static final int STRIPES = 64;
+
+	//All the Meteorite objects following natural ordering (by name, then by id)
+	private final ConcurrentSkipListSet<Meteorite> meteors = new ConcurrentSkipListSet<>();
+	//The Meteorite objects with a valid mass, ordered by mass then natural ordering
+	private final ConcurrentSkipListSet<Meteorite> byMass =
+			new ConcurrentSkipListSet<>(new MeteoriteData.MassComparator());
+	//The Meteorite objects with a valid year, ordered by year then natural ordering
+	private final ConcurrentSkipListSet<Meteorite> byYear =
+			new ConcurrentSkipListSet<>(new MeteoriteData.YearComparator());
+	//The number of Meteorite objects, since ConcurrentSkipListSet#size() is O(N)
+	private final LongAdder count = new LongAdder();
+	private final Object[] locks = new Object[STRIPES];
+
+	/**
+	 * Creates an empty collection.
+	 */
+	public ConcurrentMeteoriteData() {
+		for (int i = 0; i < STRIPES; i++)
+			locks[i] = new Object();
+	}
+
+	/**
+	 * Returns the lock of the given Meteorite. Equal Meteorite objects have equal hash codes,
+	 * so they share a lock.
+	 */
+	private Object lockOf(Meteorite m) {
+		int hash = m.hashCode();
+		return locks[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+	}
+
+	/**
+	 * Adds the given Meteorite object to this collection, and to the mass and year orderings
+	 * if its mass and year are valid. This method performs in O(log N) expected time and can
+	 * be called by many threads at once.
+	 *
+	 * @param m - Meteorite object to add
+	 * @return true if an equal Meteorite object is not already present. False if this
+	 * collection already contains an object equal to {@code m}.
+	 * @throws NullPointerException if m is null
+	 */
+	public boolean add(Meteorite m) throws NullPointerException {
+		if (m == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		synchronized (lockOf(m)) {
+			if (!meteors.add(m))
+				return false;
+			if (m.getMassMilligrams() != -1)
+				byMass.add(m);
+			if (m.getYear() != 0)
+				byYear.add(m);
+			count.increment();
+			return true;
+		}
+	}
+
+	/**
+	 * Removes the Meteorite object equal to m from this collection and from the mass and year
+	 * orderings. This method performs in O(log N) expected time and can be called by many
+	 * threads at once.
+	 *
+	 * @param m - meteorite object to remove
+	 * @return true if successfully removed. false if m is not in this collection
+	 * @throws NullPointerException if m is null
+	 */
+	public boolean remove(Meteorite m) throws NullPointerException {
+		if (m == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		synchronized (lockOf(m)) {
+			//The stored object holds the mass and year it was ordered by
+			Meteorite stored = meteors.ceiling(m);
+			if (stored == null || !stored.equals(m))
+				return false;
+			meteors.remove(stored);
+			if (stored.getMassMilligrams() != -1)
+				byMass.remove(stored);
+			if (stored.getYear() != 0)
+				byYear.remove(stored);
+			count.decrement();
+			return true;
+		}
+	}
+
+	/**
+	 * Finds out whether an object equal to m is in this collection.
+	 *
+	 * @param m - meteorite object to look for
+	 * @return true if an equal Meteorite object is present
+	 * @throws NullPointerException if m is null
+	 */
+	public boolean contains(Meteorite m) throws NullPointerException {
+		if (m == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		return meteors.contains(m);
+	}
+
+	/**
+	 * Returns the number of Meteorite objects in this collection. While other threads add or
+	 * remove, the count may lag behind by the changes in progress.
+	 *
+	 * @return the number of Meteorite objects in this collection
+	 */
+	public int size() {
+		return (int) count.sum();
+	}
+
+	/**
+	 * Returns true if this collection contains no Meteorite objects.
+	 *
+	 * @return true if this collection contains no Meteorite objects
+	 */
+	public boolean isEmpty() {
+		return meteors.isEmpty();
+	}
+
+	/**
+	 * Returns a weakly consistent iterator over all Meteorite objects in this collection in
+	 * natural ordering. The iterator does not support remove.
+	 *
+	 * @return an iterator over the elements in natural order
+	 */
+	public Iterator<Meteorite> iterator() {
+		Iterator<Meteorite> itr = meteors.iterator();
+		//Removing through the iterator would skip the other orderings
+		return new Iterator<Meteorite>() {
+			@Override
+			public boolean hasNext() {
+				return itr.hasNext();
+			}
+
+			@Override
+			public Meteorite next() {
+				return itr.next();
+			}
+		};
+	}
+
+	/**
+	 * Performs the given action on every Meteorite object whose mass is from {@code low} to
+	 * {@code high} milligrams inclusive, from the smallest mass to the largest, and for equal
+	 * masses in natural ordering, until the action returns false. The walk is weakly
+	 * consistent and never blocks, so it may run while other threads add and remove. This
+	 * method performs in O(K + log N) expected time, in which K is the number of visited
+	 * Meteorite objects.
+	 *
+	 * @param low the smallest mass to visit in milligrams.
+	 * @param high the largest mass to visit in milligrams.
+	 * @param action the action to perform on each Meteorite. Returning false stops the walk.
+	 * @return true if all matching meteorites were visited, false if the action stopped
+	 * the walk
+	 * @throws NullPointerException if {@code action} is null
+	 * @throws IllegalArgumentException if {@code low} is below 0 or greater than {@code high}
+	 */
+	public boolean getByMassRange(long low, long high, Predicate<? super Meteorite> action)
+			throws NullPointerException, IllegalArgumentException {
+		if (action == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		if (low < 0 || low > high)
+			throw new IllegalArgumentException("The mass range is invalid.");
+		//The lowest valid value for mass is 1 milligram
+		low = Math.max(low, 1);
+		Meteorite first = first();
+		Meteorite last = last();
+		if (first == null || last == null || low > high)
+			return true;
+		Meteorite from = new Meteorite(first.getName(), first.getId());
+		from.setMassMilligrams(low);
+		Meteorite to = new Meteorite(last.getName(), last.getId());
+		to.setMassMilligrams(high);
+		return walk(byMass, from, to, action);
+	}
+
+	/**
+	 * Performs the given action on every Meteorite object that landed from year {@code low}
+	 * to year {@code high} inclusive, from the earliest year to the latest, and for equal
+	 * years in natural ordering, until the action returns false. See
+	 * {@link ConcurrentMeteoriteData#getByMassRange(long, long, Predicate)}.
+	 *
+	 * @param low the earliest year to visit.
+	 * @param high the latest year to visit.
+	 * @param action the action to perform on each Meteorite. Returning false stops the walk.
+	 * @return true if all matching meteorites were visited, false if the action stopped
+	 * the walk
+	 * @throws NullPointerException if {@code action} is null
+	 * @throws IllegalArgumentException if {@code low} is not positive or greater than
+	 * {@code high}
+	 */
+	public boolean getByYearRange(int low, int high, Predicate<? super Meteorite> action)
+			throws NullPointerException, IllegalArgumentException {
+		if (action == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		if (low <= 0 || low > high)
+			throw new IllegalArgumentException("The year range is invalid.");
+		//Meteorite only accepts years before 2020, so later years cannot match
+		high = Math.min(high, 2019);
+		Meteorite first = first();
+		Meteorite last = last();
+		if (first == null || last == null || low > high)
+			return true;
+		Meteorite from = new Meteorite(first.getName(), first.getId());
+		from.setYear(low);
+		Meteorite to = new Meteorite(last.getName(), last.getId());
+		to.setYear(high);
+		return walk(byYear, from, to, action);
+	}
+
+	/**
+	 * Performs the given action on every Meteorite object with mass within delta milligrams
+	 * of the specified mass, like {@link MeteoriteData#forEachByMassMilligrams(long, long,
+	 * Predicate)} but without blocking, see
+	 * {@link ConcurrentMeteoriteData#getByMassRange(long, long, Predicate)}.
+	 *
+	 * @param mass the mass of the meteorites to visit in milligrams.
+	 * @param delta the allowed range of error away from the mass in milligrams.
+	 * @param action the action to perform on each Meteorite. Returning false stops the walk.
+	 * @return true if all matching meteorites were visited, false if the action stopped
+	 * the walk
+	 * @throws NullPointerException if {@code action} is null
+	 * @throws IllegalArgumentException if {@code mass} or {@code delta} is below 0
+	 */
+	public boolean forEachByMassMilligrams(long mass, long delta,
+			Predicate<? super Meteorite> action)
+			throws NullPointerException, IllegalArgumentException {
+		if (action == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		if (mass < 0 || delta < 0)
+			throw new IllegalArgumentException("Mass cannot be less than 0.");
+		//The lowest valid value for mass is 1 milligram
+		long lowRange = mass <= delta ? 1 : mass - delta;
+		long highRange = mass > Long.MAX_VALUE - delta ? Long.MAX_VALUE : mass + delta;
+		return MeteoriteData.timed(visit -> getByMassRange(lowRange, highRange, visit), action,
+				Metrics.MASS_QUERY);
+	}
+
+	/**
+	 * Performs the given action on every Meteorite object that landed on the given year, in
+	 * natural ordering, like {@link MeteoriteData#forEachByYear(int, Predicate)} but without
+	 * blocking, see {@link ConcurrentMeteoriteData#getByYearRange(int, int, Predicate)}.
+	 *
+	 * @param year the landing year of the meteorites to visit. Nothing is visited for 0,
+	 * which is not a valid year.
+	 * @param action the action to perform on each Meteorite. Returning false stops the walk.
+	 * @return true if all matching meteorites were visited, false if the action stopped
+	 * the walk
+	 * @throws NullPointerException if {@code action} is null
+	 * @throws IllegalArgumentException if {@code year} is less than 0 or after 2019
+	 */
+	public boolean forEachByYear(int year, Predicate<? super Meteorite> action)
+			throws NullPointerException, IllegalArgumentException {
+		if (action == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		//Meteorite only accepts years from 1 to 2019
+		if (year < 0 || year > 2019)
+			throw new IllegalArgumentException("The year is invalid. "
+					+ "Need positive integer for year.");
+		if (year == 0)
+			return true;
+		return MeteoriteData.timed(visit -> getByYearRange(year, year, visit), action,
+				Metrics.YEAR_QUERY);
+	}
+
+	/**
+	 * Copies this collection into a {@link MeteoriteData} object, for the queries that only
+	 * it offers. The copy is built balanced from the natural ordering in O(N log N) and does
+	 * not follow later changes. While other threads add or remove, it holds every Meteorite
+	 * that stayed in this collection during the copy, and may or may not hold the others.
+	 *
+	 * @return a new collection with the Meteorite objects of this one
+	 */
+	public MeteoriteData snapshot() {
+		ArrayList<Meteorite> sorted = new ArrayList<>(size());
+		for (Meteorite m : meteors)
+			sorted.add(m);
+		MeteoriteData data = new MeteoriteData();
+		data.loadSorted(sorted);
+		return data;
+	}
+
+	/**
+	 * Returns the first Meteorite object in natural ordering, null if there is none.
+	 */
+	private Meteorite first() {
+		try {
+			return meteors.first();
+		}
+		catch (NoSuchElementException ex) {
+			//Emptied by another thread
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the last Meteorite object in natural ordering, null if there is none.
+	 */
+	private Meteorite last() {
+		try {
+			return meteors.last();
+		}
+		catch (NoSuchElementException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Performs the action on the elements of the set from {@code from} to {@code to}
+	 * inclusive until it returns false.
+	 */
+	private static boolean walk(ConcurrentSkipListSet<Meteorite> set, Meteorite from,
+			Meteorite to, Predicate<? super Meteorite> action) {
+		//The ends of the natural ordering are read one after the other, so other threads
+		//	may have changed them in between and put them out of order
+		if (set.comparator().compare(from, to) > 0)
+			return true;
+		for (Meteorite m : set.subSet(from, true, to, true)) {
+			if (!action.test(m))
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,294 @@
+package project5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class watches a csv file of meteorites and adds the rows appended to it to a
+ * {@link MeteoriteData} collection while the collection is being queried. It remembers the
+ * byte offset following the last complete line it parsed, and when the file changes only the
+ * bytes after that offset are read, so the cost of an update follows the size of the appended
+ * rows and not the size of the file. A line is only parsed once its end of line was written.
+ * If the file cannot be read for a moment, for example because it is locked or being
+ * replaced, the watcher reports it once and reads the file again every second until it can.
+ *
+ * The collection is not thread safe. The rows are added while holding the lock of the
+ * collection, so other threads using the collection should synchronize on it as well. The
+ * new rows can also be added to a {@link ConcurrentMeteoriteData} (see
+ * {@link CsvTailer#setMirror(ConcurrentMeteoriteData)}), which other threads read without
+ * waiting for the watcher.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class CsvTailer implements Runnable {
+	//Number of bytes read from the file at a time
+	private static final int CHUNK = 64 * 1024;
+	//Milliseconds between two attempts to read the file after a failure
+	private static final long RETRY_MILLIS = 1000;
+
+	private Path file;
+	private MeteoriteData data;
+	//The offset following the last complete line that was parsed. Written by one thread at 
+	//	a time, and read by others through getOffset().
+	private volatile long offset;
+	//The number of meteorites added to the collection since the watcher started
+	private volatile long added = 0;
+	//Parses the appended lines. Only used by the thread of the watcher.
+	private MeteoriteParser parser;
+	//Also gets the new meteorites if not null
+	private ConcurrentMeteoriteData mirror = null;
+	private WatchService watcher;
+
+	/**
+	 * Creates a watcher for the given file that starts reading at the given byte offset.
+	 *
+	 * @param file the csv file to watch
+	 * @param data the collection the new meteorites are added to
+	 * @param offset the offset of the first byte that was not loaded yet, usually the length
+	 * of the file when it was loaded
+	 * @throws NullPointerException if file or data is null
+	 * @throws IllegalArgumentException if offset is negative
+	 */
+	public CsvTailer(Path file, MeteoriteData data, long offset)
+			throws NullPointerException, IllegalArgumentException {
+		this(file, data, offset, new MeteoriteParser(data.getLocationPool()));
+	}
+
+	/**
+	 * Creates a watcher for the given file that starts reading at the given byte offset and
+	 * parses the lines with the given parser, so that its counts of invalid values include
+	 * the appended rows. Once the watcher is started, only its thread should use the parser.
+	 *
+	 * @param file the csv file to watch
+	 * @param data the collection the new meteorites are added to
+	 * @param offset the offset of the first byte that was not loaded yet, usually the length
+	 * of the file when it was loaded
+	 * @param parser the parser of the appended lines
+	 * @throws NullPointerException if file, data or parser is null
+	 * @throws IllegalArgumentException if offset is negative
+	 */
+	public CsvTailer(Path file, MeteoriteData data, long offset, MeteoriteParser parser)
+			throws NullPointerException, IllegalArgumentException {
+		if (file == null || data == null || parser == null)
+			throw new NullPointerException("Parameters passed in should not be null");
+		if (offset < 0)
+			throw new IllegalArgumentException("The offset cannot be negative.");
+		this.file = file.toAbsolutePath();
+		this.data = data;
+		this.offset = offset;
+		this.parser = parser;
+	}
+
+	/**
+	 * Also adds the new meteorites to the given collection, outside of the lock of the 
+	 * collection of this watcher. The mirror should already hold the meteorites of that 
+	 * collection. Set it before {@link CsvTailer#start()}.
+	 *
+	 * @param mirror the collection to add the new meteorites to as well, null for none
+	 */
+	public void setMirror(ConcurrentMeteoriteData mirror) {
+		this.mirror = mirror;
+	}
+
+	/**
+	 * Starts watching the file on a daemon thread.
+	 *
+	 * @return the thread running the watcher
+	 * @throws IOException if the directory of the file cannot be watched
+	 */
+	public Thread start() throws IOException {
+		watcher = FileSystems.getDefault().newWatchService();
+		file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_MODIFY,
+				StandardWatchEventKinds.ENTRY_CREATE);
+		Thread thread = new Thread(this, "csv-tailer");
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Stops watching the file.
+	 */
+	public void stop() {
+		try {
+			if (watcher != null)
+				watcher.close();
+		}
+		catch (IOException ex) {}
+	}
+
+	/**
+	 * Waits for changes of the file and reads the appended rows until the watcher is stopped.
+	 * After a failed read, the file is read again every {@code RETRY_MILLIS} milliseconds,
+	 * even if it does not change.
+	 */
+	@Override
+	public void run() {
+		try {
+			//Rows may have been appended before the directory was registered
+			boolean failed = !tryPoll(false);
+			while (true) {
+				WatchKey key = failed ? watcher.poll(RETRY_MILLIS, TimeUnit.MILLISECONDS)
+						: watcher.take();
+				boolean changed = failed;
+				if (key != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						//Events may have been lost, so check the file anyway
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW
+								|| file.getFileName().equals(event.context()))
+							changed = true;
+					}
+					if (!key.reset())
+						return;
+				}
+				if (changed)
+					failed = !tryPoll(failed);
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ClosedWatchServiceException ex) {}
+	}
+
+	/**
+	 * Reads the appended rows, and reports a failure on the standard error instead of
+	 * throwing it, once per series of failures.
+	 *
+	 * @param failing true if the previous attempt failed too
+	 * @return true if the file was read
+	 */
+	private boolean tryPoll(boolean failing) {
+		try {
+			poll();
+			return true;
+		}
+		catch (IOException ex) {
+			if (!failing)
+				System.err.println("Error: cannot read " + file + ", trying again every "
+						+ RETRY_MILLIS + " ms: " + ex.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the complete lines appended to the file since the last call and adds the valid
+	 * meteorites to the collection. If the file became shorter than the offset, it was
+	 * replaced, and it is read again from the start (meteorites already in the collection are
+	 * not added twice).
+	 *
+	 * @return the number of meteorites added to the collection
+	 * @throws IOException if the file cannot be read
+	 */
+	public int poll() throws IOException {
+		int count = 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < offset)
+				offset = 0;
+			ByteBuffer buffer = ByteBuffer.allocate(CHUNK);
+			//The bytes of a line that continues in the next chunk
+			byte[] pending = new byte[0];
+			long position = offset;
+			while (position < size) {
+				buffer.clear();
+				int read = channel.read(buffer, position);
+				if (read <= 0)
+					break;
+				position += read;
+				byte[] bytes = buffer.array();
+
+				//Parse every complete line of the chunk
+				int lineStart = 0;
+				for (int i = 0; i < read; i++) {
+					if (bytes[i] != '\n')
+						continue;
+					String line;
+					if (pending.length > 0) {
+						byte[] joined = new byte[pending.length + i];
+						System.arraycopy(pending, 0, joined, 0, pending.length);
+						System.arraycopy(bytes, 0, joined, pending.length, i);
+						line = decode(joined, 0, joined.length);
+						pending = new byte[0];
+					}
+					else
+						line = decode(bytes, lineStart, i - lineStart);
+					lineStart = i + 1;
+					offset = position - read + lineStart;
+					count += add(line);
+				}
+				//Keep the unfinished line for the next chunk
+				if (lineStart < read) {
+					byte[] rest = new byte[pending.length + read - lineStart];
+					System.arraycopy(pending, 0, rest, 0, pending.length);
+					System.arraycopy(bytes, lineStart, rest, pending.length, read - lineStart);
+					pending = rest;
+				}
+			}
+		}
+		if (count > 0)
+			System.out.println(count + " new meteorites loaded from " + file.getFileName());
+		return count;
+	}
+
+	/**
+	 * Decodes a line of the file without its end of line characters.
+	 */
+	private static String decode(byte[] bytes, int from, int length) {
+		//Lines of the data set end with "\r\n"
+		if (length > 0 && bytes[from + length - 1] == '\r')
+			length--;
+		return new String(bytes, from, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses the line and adds the meteorite to the collection if it is valid. The offset
+	 * following the line is recorded in the collection together with the meteorite.
+	 *
+	 * @return 1 if a meteorite was added, 0 otherwise
+	 */
+	private int add(String line) {
+		Meteorite m = parser.parse(line);
+		synchronized (data) {
+			boolean fresh = m != null && data.add(m);
+			//After the meteorite, so that a crash in between reads the line again
+			data.setSourceOffset(offset);
+			if (!fresh)
+				return 0;
+		}
+		if (mirror != null)
+			mirror.add(m);
+		added++;
+		return 1;
+	}
+
+	/**
+	 * Get the offset following the last complete line that was parsed.
+	 *
+	 * @return the offset of the first byte that was not parsed yet
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Get the number of meteorites added since the watcher was created.
+	 *
+	 * @return the number of meteorites added to the collection
+	 */
+	public long getAdded() {
+		return added;
+	}
+}
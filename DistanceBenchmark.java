@@ -0,0 +1,128 @@
+package project5;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Scanner;
+
+/**
+ * This class measures the time needed to compute the distance from one location to every 
+ * Meteorite of a csv file, once with {@link Location#getDistance(Location)} on each 
+ * Meteorite, once with the primitive columns of {@link LocationColumns}, and once with only 
+ * the squared chord lengths of the columns (enough to rank the Meteorite objects by 
+ * distance). Each variant is run a number of times first so that the JIT compiler has 
+ * optimized it.
+ * 
+ * Usage: DistanceBenchmark FILE [ROUNDS]
+ * 
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class DistanceBenchmark {
+	
+	/**
+	 * Loads the csv file given as the first argument and prints the time per round and per 
+	 * Meteorite of both variants.
+	 * 
+	 * @param args the csv file, and optionally the number of measured rounds
+	 */
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println("Usage Error: the program expects file name as an argument.\n");
+			System.exit(1);
+		}
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		
+		MeteoriteData data = new MeteoriteData();
+		MeteoriteParser parser = new MeteoriteParser(data.getLocationPool());
+		try (Scanner file = new Scanner(new File(args[0]), "UTF-8")) {
+			while (file.hasNextLine()) {
+				Meteorite m = parser.parse(file.nextLine());
+				if (m != null)
+					data.add(m);
+			}
+		}
+		catch (FileNotFoundException ex) {
+			System.err.println("Error: the file " + args[0] + " cannot be opened for reading.\n");
+			System.exit(1);
+		}
+		
+		LocationColumns columns = data.getLocationColumns();
+		Location[] sites = new Location[columns.size()];
+		for (int i = 0; i < sites.length; i++)
+			sites[i] = columns.get(i).getLocation();
+		double[] out = new double[sites.length];
+		Location from = new Location(40.7128, -74.0060);
+		
+		//Both variants should agree on the distances
+		double[] expected = new double[sites.length];
+		perObject(from, sites, expected);
+		columnar(from, columns, out);
+		double error = 0;
+		for (int i = 0; i < sites.length; i++)
+			error = Math.max(error, Math.abs(expected[i] - out[i]));
+		
+		//Warm up the variants, then measure them
+		double check = 0;
+		for (int i = 0; i < rounds; i++) {
+			check += perObject(from, sites, out);
+			check += columnar(from, columns, out);
+			check += chords(from, columns, out);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++)
+			check += perObject(from, sites, out);
+		long objects = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < rounds; i++)
+			check += columnar(from, columns, out);
+		long arrays = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < rounds; i++)
+			check += chords(from, columns, out);
+		long ranking = System.nanoTime() - start;
+		
+		System.out.printf("%d meteorites with a location, %d rounds (checksum %.1f)%n", 
+				sites.length, rounds, check);
+		System.out.printf("Location.getDistance: %10.1f us/round %6.2f ns/meteorite%n", 
+				objects / 1e3 / rounds, (double) objects / rounds / sites.length);
+		System.out.printf("LocationColumns km:   %10.1f us/round %6.2f ns/meteorite%n", 
+				arrays / 1e3 / rounds, (double) arrays / rounds / sites.length);
+		System.out.printf("LocationColumns chord: %9.1f us/round %6.2f ns/meteorite%n", 
+				ranking / 1e3 / rounds, (double) ranking / rounds / sites.length);
+		System.out.printf("Speedup: %.2fx in kilometres, %.2fx for ranking, largest "
+				+ "difference %.2e km%n", (double) objects / arrays, (double) objects / ranking, 
+				error);
+	}
+	
+	/**
+	 * Computes the distances one Location at a time and returns their sum.
+	 */
+	private static double perObject(Location from, Location[] sites, double[] out) {
+		for (int i = 0; i < sites.length; i++)
+			out[i] = from.getDistance(sites[i]);
+		return sum(out);
+	}
+	
+	/**
+	 * Computes the distances with the columns and returns their sum.
+	 */
+	private static double columnar(Location from, LocationColumns columns, double[] out) {
+		columns.distances(from, out);
+		return sum(out);
+	}
+	
+	/**
+	 * Computes the squared chord lengths with the columns and returns their sum.
+	 */
+	private static double chords(Location from, LocationColumns columns, double[] out) {
+		columns.chordSquared(from, out);
+		return sum(out);
+	}
+	
+	private static double sum(double[] values) {
+		double total = 0;
+		for (double v : values)
+			total += v;
+		return total;
+	}
+}
@@ -2,9 +2,16 @@ package project5;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Scanner;
+import java.util.function.Predicate;
+
+import javax.management.JMException;
 
 /**
  * This class's main method takes a valid given csv file as the command line argument. 
@@ -14,17 +21,33 @@ import java.util.Scanner;
  * and id. 
  * 
  * After completing the process, the user could interact with the program by entering search 
- * queries to find specific meteorites based on location, year, and mass of the meteorites. 
+ * queries to find specific meteorites based on location, year, mass, and class of the meteorites. 
+ * 
+ * If "--watch" is passed after the file name, the rows appended to the file while the 
+ * program runs are added to the data set (see {@link CsvTailer}), and the year and mass 
+ * queries read a {@link ConcurrentMeteoriteData} copy that the watcher updates too, so they 
+ * do not wait for the watcher and the watcher does not wait for their printing. If "--wal DIRECTORY" is 
+ * passed, the changes of the data set are logged in DIRECTORY (see {@link MutationLog}), and 
+ * the next run recovers the data set from there instead of reading the whole file. If 
+ * "--rejects N" is passed, the invalid values of the file are counted, and one line in every 
+ * N lines with the same problem is printed (see {@link MeteoriteParser}).
  * 
  * @author Jonason Wu
  * @version 12/3/2020
  */
 public class FallenStars {
+	//The largest number of meteorites printed for a name query
+	private static final int NAME_LIMIT = 100;
+	//The number of closest names suggested when a name query has no match
+	private static final int SUGGESTIONS = 5;
 
 	/**
 	 * The main() method of the program. General explanation is provided at {@link FallenStars}
 	 * @param args the array of Strings that are provided by the command line when started.
-	 * the first argument passed in should be the csv file that has the dataset.
+	 * the first argument passed in should be the csv file that has the dataset. The optional 
+	 * argument "--watch" keeps loading the rows appended to the file, and the optional 
+	 * arguments "--wal DIRECTORY" keep a {@link MutationLog} in DIRECTORY, and the optional 
+	 * arguments "--rejects N" print a sample of the invalid lines.
 	 */
 	public static void main(String[] args) {
 		//verify that the command line argument exists 
@@ -49,76 +72,168 @@ public class FallenStars {
 			System.exit(1);
 		}
 		
-		//open the file for reading 
-		Scanner meteors = null; 
-
-		try {
-			meteors = new Scanner (starfall);
-		} catch (FileNotFoundException e) {
-			System.err.println("Error: the file "+ starfall.getAbsolutePath()
-					+ " cannot be opened for reading.\n");
-			System.exit(1);
+		//read the optional arguments 
+		boolean watch = false;
+		String walDir = null;
+		//Print one rejected line in every rejectSample lines, 0 to print none
+		int rejectSample = 0;
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("--watch"))
+				watch = true;
+			else if (args[i].equals("--wal") && i + 1 < args.length)
+				walDir = args[++i];
+			else if (args[i].equals("--rejects") && i + 1 < args.length) {
+				try {
+					rejectSample = Integer.parseInt(args[++i]);
+				}
+				catch (NumberFormatException ex) {
+					rejectSample = -1;
+				}
+				if (rejectSample <= 0) {
+					System.err.println("Usage Error: --rejects expects a positive number\n");
+					System.exit(1);
+				}
+			}
+			else {
+				System.err.println("Usage Error: unknown argument " + args[i] + "\n");
+				System.exit(1);
+			}
 		}
 		
+		//Remember how much of the file is read now, so that the watcher only parses rows 
+		//	appended from here on. Rows appended while loading are read twice, but add() 
+		//	ignores the duplicates.
+		long loaded = starfall.length();
+		
 		//Create list to hold all valid meteorites (Valid meteorites have valid name and id)
 		MeteoriteData meteor = new MeteoriteData();
-		//Set the values important to each meteorite
-		String name;
-		int id;
-		int mass;
-		int year;
-		double latitude;
-		double longitude;
-		while (meteors.hasNextLine()) {
-			
-			//Index of parsed: [0   ,  1,2,3,    4,5,    6,7,8,   9]
-			//Data of parsed:  [name, id, , , mass, , year, , , loc]
-			ArrayList<String> parsed = splitCSVLine(meteors.nextLine());
-			//Create meteorite object that is planned to be added to the list of meteorites
-			Meteorite toAdd;
-			//Try getting the name and id of the meteorite object. If error occurs, it is not
-			//	a valid meteorite to add to list
+		
+		//One parser for every line read, by the loader and then by the watcher, which counts 
+		//	the invalid values by reason
+		MeteoriteParser parser = new MeteoriteParser(meteor.getLocationPool());
+		if (rejectSample > 0)
+			parser.setRejectLog(System.err, rejectSample);
+		
+		//Recover the data set of the previous run if there is one
+		MutationLog log = null;
+		if (walDir != null) {
 			try {
-				name = parsed.get(0);
-				id = Integer.parseInt(parsed.get(1));
-				toAdd = new Meteorite(name, id);
+				log = new MutationLog(new File(walDir).toPath(), 256, 200, 100000);
+				if (log.getStaleVersion() != 0)
+					System.err.println("Warning: the mutation log in " + walDir + " was "
+							+ "written in format version " + log.getStaleVersion() + " and "
+							+ "cannot be read. It was dropped, and the file is loaded again.\n");
+				if (log.hasSnapshot()) {
+					log.recover(meteor);
+					//The snapshot and the log only hold the rows of the file up to the 
+					//	offset they record, the rows appended later are read below
+					loaded = log.getSourceOffset();
+				}
 			}
-			catch (IllegalArgumentException ex) {
-				continue;
+			catch (IOException ex) {
+				System.err.println("Error: the mutation log in " + walDir 
+						+ " cannot be used: " + ex.getMessage() + "\n");
+				System.exit(1);
 			}
-			
-			//Test if there is a valid mass to add to meteorite
+		}
+		
+		if (log == null || !log.hasSnapshot()) {
+			//open the file for reading 
+			Scanner meteors = null; 
+	
 			try {
-				mass = Integer.parseInt(parsed.get(4));
-				toAdd.setMass(mass);
+				meteors = new Scanner (starfall);
+			} catch (FileNotFoundException e) {
+				System.err.println("Error: the file "+ starfall.getAbsolutePath()
+						+ " cannot be opened for reading.\n");
+				System.exit(1);
 			}
-			catch (IllegalArgumentException ex) {}
 			
-			//Test if there is a valid year to add to meteorite
-			try {
-				//Example of data for partYear: "01/01/1880 12:00:00 AM"
-				String partYear = parsed.get(6);
-				String[] separated = partYear.split(" ");
-				separated = separated[0].split("/");
-				year = Integer.parseInt(separated[2]);
-				toAdd.setYear(year);
+			//The first line holds the names of the columns, which is not a row to count
+			boolean header = true;
+			while (meteors.hasNextLine()) {
+				long start = Metrics.ENABLED ? System.nanoTime() : 0;
+				Meteorite toAdd = parser.parse(meteors.nextLine());
+				long parsed = Metrics.ENABLED ? System.nanoTime() : 0;
+				//add the meteorite to the list if it is valid
+				if (toAdd != null)
+					meteor.add(toAdd);
+				if (Metrics.ENABLED && !header) {
+					if (toAdd != null)
+						Metrics.LOAD_ROWS.increment();
+					else
+						Metrics.LOAD_REJECTS.increment();
+					Metrics.LOAD_PARSE_NANOS.add(parsed - start);
+					Metrics.LOAD_INSERT_NANOS.add(System.nanoTime() - parsed);
+				}
+				header = false;
 			}
-			catch (IllegalArgumentException ex) {}
-			catch (ArrayIndexOutOfBoundsException ex) {}
+			meteors.close();
 			
-			//Test if there is a valid location to add to meteorite
+			//Write the base snapshot, so that the next run does not read the file again
+			if (log != null) {
+				try {
+					log.setSourceOffset(loaded);
+					log.compact(meteor);
+				}
+				catch (IOException ex) {
+					System.err.println("Error: the snapshot cannot be written in " + walDir 
+							+ ": " + ex.getMessage() + "\n");
+					System.exit(1);
+				}
+			}
+		}
+		meteor.setMutationLog(log);
+		
+		//Read the rows appended to the file since the offset of the log. The log is 
+		//	attached, so they are logged with the new offset, and a file that became 
+		//	shorter is read again.
+		CsvTailer tailer = new CsvTailer(starfall.toPath(), meteor, loaded, parser);
+		if (log != null && loaded != starfall.length()) {
 			try {
-				//Example of data for partLoc: "(50.775, 6.08333)"
-				String partLoc = parsed.get(9).replace("(", "").replace(")", "");
-				String[] separated = partLoc.split(",");
-				latitude = Double.parseDouble(separated[0]);
-				longitude = Double.parseDouble(separated[1]);
-				toAdd.setLocation(new Location(latitude, longitude));
+				tailer.poll();
+			}
+			catch (IOException ex) {
+				System.err.println("Error: the file " + starfall.getAbsolutePath()
+						+ " cannot be read: " + ex.getMessage() + "\n");
+				System.exit(1);
+			}
+		}
+		if (rejectSample > 0)
+			System.err.println("Loaded " + parser + "\n");
+		
+		//Users often repeat the same queries, so keep the most recent results
+		meteor.setQueryCache(new QueryCache(256, 16L << 20));
+		
+		//Publish the counters to JMX clients if they are kept
+		Metrics metrics = new Metrics(meteor);
+		if (Metrics.ENABLED) {
+			try {
+				metrics = Metrics.register(meteor);
+			}
+			catch (JMException ex) {
+				System.err.println("Error: the metrics cannot be published: " 
+						+ ex.getMessage() + "\n");
+			}
+		}
+		
+		//Keep loading the rows appended to the file if asked to. The year and mass queries 
+		//	read a copy that the watcher adds to without locking.
+		ConcurrentMeteoriteData live = null;
+		Thread watcher = null;
+		if (watch) {
+			live = new ConcurrentMeteoriteData();
+			Iterator<Meteorite> all = meteor.iterator();
+			while (all.hasNext())
+				live.add(all.next());
+			tailer.setMirror(live);
+			try {
+				watcher = tailer.start();
+			}
+			catch (IOException ex) {
+				System.err.println("Error: the file " + starfall.getAbsolutePath()
+						+ " cannot be watched for changes.\n");
 			}
-			catch (IllegalArgumentException ex) {}
-			catch (IndexOutOfBoundsException ex) {}
-			//add the meteorite to the list
-			meteor.add(toAdd);
 		}
 		
 		
@@ -132,18 +247,31 @@ public class FallenStars {
 			"	        location LATITUDE LONGITUDE\n" + 
 			"	  To search for meteorites that fell in a given year, enter\n" + 
 			"	        year YEAR\n" + 
+			"	  To search for meteorites that fell between two dates (like 1998-06-01), enter\n" + 
+			"	        date FROM TO\n" + 
 			"	  To search for meteorites with weights MASS +/- 10 grams, enter\n" + 
 			"	        mass MASS\n" + 
+			"	  To search for meteorites of a class, optionally only the ones that fell\n" + 
+			"	  or the ones that were found, enter\n" + 
+			"	        class CLASS [fell|found]\n" + 
+			"	  To search for meteorites whose name starts with PREFIX, enter\n" + 
+			"	        name PREFIX\n" + 
+			"	  To show the counters of the program (see -Dproject5.metrics), enter\n" + 
+			"	        stats\n" + 
 			"	  To finish the program, enter\n" + 
 			"	        quit\n\n");
 		//User inputs
 		Scanner userInput = new Scanner(System.in);
 		String user;
 		do {
-			//User can input 3 queries
+			//User can input 7 queries
 			//location LATITUDE LONGITUDE
 			//year YEAR
+			//date FROM TO
 			//mass MASS
+			//class CLASS [FALL]
+			//name PREFIX
+			//stats
 			System.out.println("\nEnter your search query.\n");
 			user = userInput.nextLine();
 			
@@ -163,7 +291,11 @@ public class FallenStars {
 				try {
 					double userLat= Double.parseDouble(userSplit[1]);
 					double userLon = Double.parseDouble(userSplit[2]);
-					Meteorite close = meteor.getByLocation(new Location (userLat, userLon));
+					Meteorite close;
+					//The watcher may be adding meteorites at the same time
+					synchronized (meteor) {
+						close = meteor.getByLocation(new Location (userLat, userLon));
+					}
 					System.out.println(close);
 				}
 				catch (IllegalArgumentException ex) {
@@ -181,22 +313,55 @@ public class FallenStars {
 				//Validate user input and print all meteorites of matching years
 				try {
 					int userYear = Integer.parseInt(userSplit[1]);
-					MeteoriteData match = meteor.getByYear(userYear);
-					Iterator<Meteorite> itr = match.iterator();
-					if (!itr.hasNext()) {
-						System.out.println("No matches found. Try again.\n");
-						break;
-					}
+					//Print the matches as the year index is walked, without copying them
+					int[] shown = {0};
+					Predicate<Meteorite> print = m -> {
+						System.out.println(m);
+						shown[0]++;
+						return true;
+					};
+					if (live != null)
+						live.forEachByYear(userYear, print);
 					else {
-						while(itr.hasNext())
-							System.out.println(itr.next());
+						synchronized (meteor) {
+							meteor.forEachByYear(userYear, print);
+						}
 					}
+					if (shown[0] == 0)
+						System.out.println("No matches found. Try again.\n");
 				}
 				catch (IllegalArgumentException ex) {
 					System.err.println("This is not a valid year. Try again.\n");
 				}
 				break;
 				
+			case "date":
+				//Date must have array of length 3
+				if (userSplit.length != 3) {
+					System.err.println("This is not a valid date range. Try again.\n");
+					break;
+				}
+				
+				//Validate user input and print the meteorites of the range as they are found
+				try {
+					LocalDate from = LocalDate.parse(userSplit[1]);
+					LocalDate to = LocalDate.parse(userSplit[2]);
+					int[] shown = {0};
+					synchronized (meteor) {
+						meteor.getByDateRange(from, to, m -> {
+							System.out.println(m);
+							shown[0]++;
+							return true;
+						});
+					}
+					if (shown[0] == 0)
+						System.out.println("No matches found. Try again.\n");
+				}
+				catch (DateTimeParseException | IllegalArgumentException ex) {
+					System.err.println("This is not a valid date range. Try again.\n");
+				}
+				break;
+				
 			case "mass":
 				//Mass must have array of length 2
 				if (userSplit.length != 2) {
@@ -205,24 +370,97 @@ public class FallenStars {
 				}
 				
 				//Validate user input and print all meteorites of matching masses with error of 10.
+				//	The mass may have decimals, like 256.8.
 				try {
-					int userMass = Integer.parseInt(userSplit[1]);
-					MeteoriteData match = meteor.getByMass(userMass, 10);
-					if (match == null) {
-						System.out.println("No matches found. Try again.\n");
-						break;
-					}
+					long userMass = MeteoriteParser.parseMilligrams(userSplit[1], 0, 
+							userSplit[1].length());
+					int[] shown = {0};
+					Predicate<Meteorite> print = m -> {
+						System.out.println(m);
+						shown[0]++;
+						return true;
+					};
+					if (live != null)
+						live.forEachByMassMilligrams(userMass, 10 * Meteorite.MILLIGRAMS, print);
 					else {
-						Iterator<Meteorite> itr = match.iterator();
-						while (itr.hasNext())
-							System.out.println(itr.next());
+						synchronized (meteor) {
+							meteor.forEachByMassMilligrams(userMass, 10 * Meteorite.MILLIGRAMS, 
+									print);
+						}
 					}
+					if (shown[0] == 0)
+						System.out.println("No matches found. Try again.\n");
 				}
 				catch (IllegalArgumentException ex) {
 					System.err.println("This is not a valid mass. Try again.\n");
 				}
 				break;
 				
+			case "class":
+				//Class names may have spaces, like "Iron, IIAB". The fall is the last word.
+				int end = userSplit.length;
+				MeteoriteQuery byClass = new MeteoriteQuery();
+				if (end > 2 && (userSplit[end - 1].equalsIgnoreCase("fell") 
+						|| userSplit[end - 1].equalsIgnoreCase("found")))
+					byClass.fall(userSplit[--end]);
+				if (end < 2) {
+					System.err.println("This is not a valid class. Try again.\n");
+					break;
+				}
+				byClass.recclass(String.join(" ", Arrays.copyOfRange(userSplit, 1, end)));
+				
+				//Print all meteorites of the class, filtered by the bitmaps of the categories
+				MeteoriteData match;
+				synchronized (meteor) {
+					match = meteor.query(byClass);
+				}
+				Iterator<Meteorite> itr = match.iterator();
+				if (!itr.hasNext()) {
+					System.out.println("No matches found. Try again.\n");
+					break;
+				}
+				while (itr.hasNext())
+					System.out.println(itr.next());
+				break;
+				
+			case "name":
+				//Names may have spaces, like "Allan Hills"
+				if (userSplit.length < 2) {
+					System.err.println("This is not a valid name. Try again.\n");
+					break;
+				}
+				
+				//Print the first matches of the prefix in natural ordering
+				String prefix = String.join(" ", Arrays.copyOfRange(userSplit, 1, 
+						userSplit.length));
+				MeteoriteData named;
+				synchronized (meteor) {
+					named = meteor.getByNamePrefix(prefix, NAME_LIMIT);
+				}
+				Iterator<Meteorite> found = named.iterator();
+				if (!found.hasNext()) {
+					//The name may be misspelled, so suggest the closest names
+					ArrayList<Meteorite> closest;
+					synchronized (meteor) {
+						closest = meteor.searchName(prefix, SUGGESTIONS);
+					}
+					System.out.println("No matches found. Try again.\n");
+					if (!closest.isEmpty())
+						System.out.println("Closest names:");
+					for (Meteorite m : closest)
+						System.out.println(m);
+					break;
+				}
+				while (found.hasNext())
+					System.out.println(found.next());
+				if (named.size() == NAME_LIMIT)
+					System.out.println("Only the first " + NAME_LIMIT + " matches are shown.");
+				break;
+				
+			case "stats":
+				System.out.print(metrics.report());
+				break;
+				
 			case "quit":
 				break;
 				
@@ -233,6 +471,30 @@ public class FallenStars {
 		} while (!user.equals("quit"));
 		
 		userInput.close();
+		//Stop the watcher, so that it is done with the parser and the log
+		if (watcher != null) {
+			tailer.stop();
+			try {
+				watcher.join();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			if (rejectSample > 0)
+				System.err.println("Loaded in total " + parser + "\n");
+		}
+		//Write the changes still waiting in the log
+		if (log != null) {
+			try {
+				synchronized (meteor) {
+					log.close();
+				}
+			}
+			catch (IOException ex) {
+				System.err.println("Error: the mutation log cannot be written: " 
+						+ ex.getMessage() + "\n");
+			}
+		}
 		
 	}
 	/**
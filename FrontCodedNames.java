@@ -0,0 +1,180 @@
+package project5;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * This class holds the names of the Meteorite objects of a collection in natural ordering as a
+ * front-coded array, to find the Meteorite objects whose name starts with a prefix. Names are
+ * case-folded the way {@link String#compareToIgnoreCase(String)} compares them, so the folded
+ * names are sorted like the Meteorite objects.
+ *
+ * The names are cut into blocks of 16 names. The first name of a block is stored whole, and
+ * every other name only stores the characters following the prefix it shares with the
+ * previous name. Sorted names share long prefixes ("Allan Hills 77005", "Allan Hills
+ * 77015", ...), so this takes a fraction of the memory of the names. A search finds the block
+ * of the prefix by binary search over the first names of the blocks, then decodes the names
+ * one by one from there, so it costs O(log(N) * P + K) for a prefix of length P and K matches.
+ *
+ * The names are a snapshot: they do not follow later changes of the collection.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class FrontCodedNames {
+	//Number of names per block
+	private static final int BLOCK = 16;
+
+	//The Meteorite objects in natural ordering
+	private Meteorite[] meteorites;
+	//The characters each folded name adds to the previous one in its block, concatenated
+	private char[] suffixes;
+	//Where the suffix of name i starts in suffixes. offsets[size] is the end of the last one.
+	private int[] offsets;
+	//The number of characters name i shares with the previous name, 0 for the first names
+	//	of the blocks
+	private int[] shared;
+	private int size = 0;
+
+	/**
+	 * Builds the front-coded names of the Meteorite objects returned by the iterator, which
+	 * must be in natural ordering.
+	 *
+	 * @param itr the Meteorite objects in natural ordering
+	 * @param capacity the expected number of Meteorite objects
+	 */
+	public FrontCodedNames(Iterator<Meteorite> itr, int capacity) {
+		ArrayList<Meteorite> sorted = new ArrayList<>(capacity);
+		while (itr.hasNext())
+			sorted.add(itr.next());
+		size = sorted.size();
+		meteorites = sorted.toArray(new Meteorite[size]);
+		offsets = new int[size + 1];
+		shared = new int[size];
+		char[] data = new char[Math.max(16, capacity * 4)];
+		int used = 0;
+		String previous = "";
+		for (int i = 0; i < size; i++) {
+			String name = fold(meteorites[i].getName());
+			int common = 0;
+			if (i % BLOCK != 0) {
+				int max = Math.min(previous.length(), name.length());
+				while (common < max && previous.charAt(common) == name.charAt(common))
+					common++;
+			}
+			int length = name.length() - common;
+			if (used + length > data.length)
+				data = Arrays.copyOf(data, Math.max(data.length * 2, used + length));
+			name.getChars(common, name.length(), data, used);
+			offsets[i] = used;
+			shared[i] = common;
+			used += length;
+			previous = name;
+		}
+		offsets[size] = used;
+		suffixes = Arrays.copyOf(data, used);
+	}
+
+	/**
+	 * Returns the number of names stored.
+	 *
+	 * @return the number of Meteorite objects
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the Meteorite objects whose name starts with the prefix, ignoring case.
+	 *
+	 * @param prefix the beginning of the names to find
+	 * @param limit the largest number of Meteorite objects to return
+	 * @return at most {@code limit} matching Meteorite objects in natural ordering
+	 * @throws IllegalArgumentException if prefix is null or limit is not positive
+	 */
+	public ArrayList<Meteorite> startingWith(String prefix, int limit)
+			throws IllegalArgumentException {
+		if (prefix == null || limit <= 0)
+			throw new IllegalArgumentException("Need a prefix and a positive limit.");
+		String key = fold(prefix);
+		ArrayList<Meteorite> matches = new ArrayList<>();
+		if (size == 0)
+			return matches;
+
+		//Find the last block whose first name is before the prefix. Matches may only start
+		//	in that block or at the first name of the next one.
+		int low = 0;
+		int high = (size - 1) / BLOCK;
+		int block = 0;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (compareHead(middle * BLOCK, key) < 0) {
+				block = middle;
+				low = middle + 1;
+			}
+			else
+				high = middle - 1;
+		}
+
+		//Decode the names from there: skip the ones before the prefix, and collect until a
+		//	name does not start with it
+		char[] name = new char[64];
+		int length = 0;
+		for (int i = block * BLOCK; i < size; i++) {
+			int suffix = offsets[i + 1] - offsets[i];
+			length = shared[i] + suffix;
+			if (length > name.length)
+				name = Arrays.copyOf(name, Math.max(name.length * 2, length));
+			System.arraycopy(suffixes, offsets[i], name, shared[i], suffix);
+			int relation = comparePrefix(name, length, key);
+			if (relation < 0)
+				continue;
+			if (relation > 0)
+				break;
+			matches.add(meteorites[i]);
+			if (matches.size() == limit)
+				break;
+		}
+		return matches;
+	}
+
+	/**
+	 * Compares the first name of a block, which is stored whole, with the key.
+	 */
+	private int compareHead(int i, String key) {
+		int length = offsets[i + 1] - offsets[i];
+		int max = Math.min(length, key.length());
+		for (int k = 0; k < max; k++) {
+			char c = suffixes[offsets[i] + k];
+			if (c != key.charAt(k))
+				return c - key.charAt(k);
+		}
+		return length - key.length();
+	}
+
+	/**
+	 * Compares a name with a prefix.
+	 *
+	 * @return 0 if the name starts with the prefix, otherwise negative if the name is before
+	 * the prefix and positive if it is after
+	 */
+	private static int comparePrefix(char[] name, int length, String prefix) {
+		int max = Math.min(length, prefix.length());
+		for (int k = 0; k < max; k++) {
+			if (name[k] != prefix.charAt(k))
+				return name[k] - prefix.charAt(k);
+		}
+		return length >= prefix.length() ? 0 : -1;
+	}
+
+	/**
+	 * Folds the case of every character like {@link String#compareToIgnoreCase(String)}.
+	 */
+	private static String fold(String name) {
+		char[] chars = name.toCharArray();
+		for (int i = 0; i < chars.length; i++)
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		return new String(chars);
+	}
+}
@@ -10,8 +10,16 @@ package project5;
  * @version 10/5/2020
  */
 public class Location {
+	//Radius of the Earth in kilometres used for distances
+	private static final double RADIUS = 6371;
+	
 	private double latitude;
 	private double longitude;
+	//The location as a point (x, y, z) on the unit sphere, computed once by the constructor 
+	//	so that comparing distances needs no trigonometry
+	private final double x;
+	private final double y;
+	private final double z;
 	/**
 	 * Constructor creates the location for the Meteorite by taking in a latitude between 
 	 * -90.0 and 90.0 and a longitude between -180.0 and 180.0. 
@@ -36,6 +44,12 @@ public class Location {
 			throw new IllegalArgumentException("The longitude is out of range for: " 
 					+ latitude + ", " + longitude + ". Valid range is [-180.0, 180.0]");
 		}
+		double lat = Math.toRadians(latitude);
+		double lon = Math.toRadians(longitude);
+		double cosLat = Math.cos(lat);
+		this.x = cosLat * Math.cos(lon);
+		this.y = cosLat * Math.sin(lon);
+		this.z = Math.sin(lat);
 	}
 	
 	/**
@@ -108,9 +122,73 @@ public class Location {
 				   Math.pow(Math.sin(dLon / 2), 2) *
 				   Math.cos(lat1) *
 				   Math.cos(lat2);
-		double rad = 6371;
 		double c = 2 * Math.asin(Math.sqrt(a));
-		return rad * c;
+		return RADIUS * c;
+	}
+	
+	/**
+	 * This method finds the squared length of the straight line (chord) between the 
+	 * Location object that calls the method and {@code loc}, measured on a sphere of radius 1. 
+	 * The chord grows with the distance along the surface, so comparing chords orders 
+	 * locations exactly like {@link Location#getDistance(Location)} does, without any 
+	 * trigonometric function. Use {@link Location#toKilometres(double)} to get the distance.
+	 * 
+	 * @param loc the location to measure to.
+	 * @return the squared chord length, from 0 (same location) to 4 (opposite locations).
+	 * @throws IllegalArgumentException if {@code loc} is null.
+	 */
+	public double chordSquared(Location loc) throws IllegalArgumentException {
+		if (loc == null) {
+			throw new IllegalArgumentException("The location is undefined. Cannot compute distance.");
+		}
+		double dx = this.x - loc.x;
+		double dy = this.y - loc.y;
+		double dz = this.z - loc.z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+	
+	/**
+	 * Converts a squared chord length returned by {@link Location#chordSquared(Location)} to 
+	 * the distance in kilometres returned by {@link Location#getDistance(Location)}.
+	 * 
+	 * @param chordSquared the squared chord length on the unit sphere.
+	 * @return the distance along the surface of the Earth in kilometres.
+	 */
+	public static double toKilometres(double chordSquared) {
+		//Rounding can push the chord slightly past the diameter
+		return 2 * RADIUS * Math.asin(Math.min(1.0, Math.sqrt(chordSquared) / 2));
+	}
+	
+	/**
+	 * Converts a distance in kilometres to the squared chord length of the same distance, so 
+	 * that a search radius can be compared to {@link Location#chordSquared(Location)}.
+	 * 
+	 * @param km the distance along the surface of the Earth in kilometres.
+	 * @return the squared chord length on the unit sphere, 4 for distances of half the 
+	 * circumference of the Earth or more.
+	 */
+	public static double toChordSquared(double km) {
+		if (km >= Math.PI * RADIUS)
+			return 4;
+		double chord = 2 * Math.sin(km / (2 * RADIUS));
+		return chord * chord;
+	}
+	
+	/**
+	 * Get the location as a point on the unit sphere. Used by {@link LocationColumns}.
+	 * 
+	 * @return the x, y or z coordinate of the point.
+	 */
+	double getX() {
+		return this.x;
+	}
+	
+	double getY() {
+		return this.y;
+	}
+	
+	double getZ() {
+		return this.z;
 	}
 	
 	/**
@@ -0,0 +1,263 @@
+package project5;
+
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * This class holds the landing sites of the Meteorite objects of a collection as contiguous
+ * primitive columns, for scans that have to compute the distance to every Meteorite (for
+ * example to rank all of them by distance). {@link Location#getDistance(Location)} converts
+ * degrees to radians and calls several trigonometric functions on every call; here every
+ * site is stored as its point (x, y, z) on the unit sphere, so the distance kernel is a loop
+ * of multiplications and additions over arrays that the JIT compiler can vectorize.
+ *
+ * The squared chord length between two points of the unit sphere orders the sites exactly
+ * like the haversine distance, and the haversine distance in kilometres is
+ * 2 * R * asin(chord / 2), so the kilometres are only computed when they are asked for.
+ *
+ * The columns are a snapshot: they do not follow later changes of the collection. Since they
+ * are plain arrays, they can also be cut into chunks that are scanned in parallel, see
+ * {@link LocationColumns#nearest(Location, ToDoubleBiFunction, boolean)}.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class LocationColumns {
+	//Chunks of at most this many sites are scanned by one fork/join task
+	private static final int CHUNK = 8192;
+
+	//The Meteorite objects with a location, in the order they were given
+	private Meteorite[] meteorites;
+	//Landing sites as points of the unit sphere
+	private double[] x;
+	private double[] y;
+	private double[] z;
+	private int size = 0;
+
+	/**
+	 * Builds the columns from the Meteorite objects returned by the iterator. Meteorites
+	 * without a location are skipped.
+	 *
+	 * @param itr the Meteorite objects to store
+	 * @param capacity the expected number of Meteorite objects
+	 */
+	public LocationColumns(Iterator<Meteorite> itr, int capacity) {
+		capacity = Math.max(capacity, 16);
+		meteorites = new Meteorite[capacity];
+		while (itr.hasNext()) {
+			Meteorite m = itr.next();
+			Location loc = m.getLocation();
+			if (loc == null)
+				continue;
+			if (size == meteorites.length)
+				grow();
+			meteorites[size] = m;
+			size++;
+		}
+		x = new double[size];
+		y = new double[size];
+		z = new double[size];
+		for (int i = 0; i < size; i++) {
+			//Every Location knows its point on the unit sphere already
+			Location loc = meteorites[i].getLocation();
+			x[i] = loc.getX();
+			y[i] = loc.getY();
+			z[i] = loc.getZ();
+		}
+	}
+
+	private void grow() {
+		int capacity = meteorites.length * 2;
+		Meteorite[] m = new Meteorite[capacity];
+		System.arraycopy(meteorites, 0, m, 0, size);
+		meteorites = m;
+	}
+
+	/**
+	 * Returns the number of Meteorite objects stored in the columns.
+	 *
+	 * @return the number of Meteorite objects with a location
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the Meteorite stored at the given position of the columns.
+	 *
+	 * @param i the position, from 0 to size() - 1
+	 * @return the Meteorite at position i
+	 * @throws IndexOutOfBoundsException if i is out of range
+	 */
+	public Meteorite get(int i) throws IndexOutOfBoundsException {
+		if (i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Position " + i + " is out of range.");
+		return meteorites[i];
+	}
+
+	/**
+	 * Computes the squared chord length between {@code loc} and every stored site, measured
+	 * on the unit sphere. This value orders the sites like their distance from {@code loc}.
+	 *
+	 * @param loc the location to measure from
+	 * @param out receives the squared chord length of site i at out[i]
+	 * @throws IllegalArgumentException if loc is null or out is shorter than size()
+	 */
+	public void chordSquared(Location loc, double[] out) throws IllegalArgumentException {
+		if (loc == null || out == null || out.length < size)
+			throw new IllegalArgumentException("Need a location and an output array of at "
+					+ "least " + size + " elements.");
+		double qx = loc.getX();
+		double qy = loc.getY();
+		double qz = loc.getZ();
+		//Kept free of calls and branches so the loop is vectorized
+		double[] xs = x;
+		double[] ys = y;
+		double[] zs = z;
+		for (int i = 0; i < size; i++) {
+			double dx = xs[i] - qx;
+			double dy = ys[i] - qy;
+			double dz = zs[i] - qz;
+			out[i] = dx * dx + dy * dy + dz * dz;
+		}
+	}
+
+	/**
+	 * Computes the haversine distance in kilometres between {@code loc} and every stored
+	 * site, like {@link Location#getDistance(Location)} does for a single site.
+	 *
+	 * @param loc the location to measure from
+	 * @param out receives the distance of site i at out[i]
+	 * @throws IllegalArgumentException if loc is null or out is shorter than size()
+	 */
+	public void distances(Location loc, double[] out) throws IllegalArgumentException {
+		chordSquared(loc, out);
+		for (int i = 0; i < size; i++)
+			out[i] = Location.toKilometres(out[i]);
+	}
+
+	/**
+	 * Finds the position of the site nearest to {@code loc}. If several sites are equally
+	 * near, the first one is returned.
+	 *
+	 * @param loc the location to measure from
+	 * @return the position of the nearest site, -1 if there are no sites
+	 * @throws IllegalArgumentException if loc is null
+	 */
+	public int nearest(Location loc) throws IllegalArgumentException {
+		if (size == 0) {
+			if (loc == null)
+				throw new IllegalArgumentException("Location is undefined.");
+			return -1;
+		}
+		double[] chords = new double[size];
+		chordSquared(loc, chords);
+		int best = 0;
+		for (int i = 1; i < size; i++) {
+			if (chords[i] < chords[best])
+				best = i;
+		}
+		return best;
+	}
+
+	/**
+	 * Finds the position of the site nearest to {@code loc} according to the given distance
+	 * function, which is called as {@code distance.applyAsDouble(loc, site)} and may be any
+	 * function that cannot be indexed. When {@code parallel} is true the sites are cut into
+	 * chunks scanned by fork/join tasks of the common pool; every task keeps the nearest site
+	 * of its chunk, and the results are combined keeping the smaller distance, or the lower
+	 * position if the distances are equal. The answer is therefore the same as the one of a
+	 * serial scan: the first of the nearest sites. Distances that are NaN never win.
+	 *
+	 * @param loc the location to measure from
+	 * @param distance the distance function, null for the squared chord length (which orders
+	 * the sites like {@link Location#getDistance(Location)})
+	 * @param parallel true to scan the chunks in parallel
+	 * @return the position of the nearest site, -1 if there are no sites or every distance
+	 * is NaN
+	 * @throws IllegalArgumentException if loc is null
+	 */
+	public int nearest(Location loc, ToDoubleBiFunction<Location, Location> distance,
+			boolean parallel) throws IllegalArgumentException {
+		if (loc == null)
+			throw new IllegalArgumentException("Location is undefined.");
+		Nearest task = new Nearest(loc, distance, 0, size);
+		Nearest best = parallel && size > CHUNK ? ForkJoinPool.commonPool().invoke(task)
+				: task.scan();
+		return best.position;
+	}
+
+	/**
+	 * The fork/join task that finds the nearest site among the positions [from, to). The
+	 * task is also its own result: after it ran, position and distance hold the best site.
+	 */
+	private class Nearest extends RecursiveTask<Nearest> {
+		private static final long serialVersionUID = 1L;
+
+		private final Location loc;
+		private final ToDoubleBiFunction<Location, Location> distance;
+		private final int from;
+		private final int to;
+		//The best site found so far, -1 if none
+		private int position = -1;
+		private double best = Double.NaN;
+
+		Nearest(Location loc, ToDoubleBiFunction<Location, Location> distance, int from, int to) {
+			this.loc = loc;
+			this.distance = distance;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Nearest compute() {
+			if (to - from <= CHUNK)
+				return scan();
+			int middle = (from + to) >>> 1;
+			Nearest left = new Nearest(loc, distance, from, middle);
+			Nearest right = new Nearest(loc, distance, middle, to);
+			left.fork();
+			right.compute();
+			left.join();
+			//The left half holds the lower positions, so it wins ties
+			if (right.position >= 0 && (left.position < 0 || right.best < left.best)) {
+				position = right.position;
+				best = right.best;
+			}
+			else {
+				position = left.position;
+				best = left.best;
+			}
+			return this;
+		}
+
+		/**
+		 * Scans the chunk serially. Only a strictly smaller distance replaces the best site,
+		 * so the first of the nearest sites is kept.
+		 */
+		Nearest scan() {
+			double qx = loc.getX();
+			double qy = loc.getY();
+			double qz = loc.getZ();
+			for (int i = from; i < to; i++) {
+				double d;
+				if (distance == null) {
+					double dx = x[i] - qx;
+					double dy = y[i] - qy;
+					double dz = z[i] - qz;
+					d = dx * dx + dy * dy + dz * dz;
+				}
+				else {
+					d = distance.applyAsDouble(loc, meteorites[i].getLocation());
+				}
+				if (position < 0 ? !Double.isNaN(d) : d < best) {
+					position = i;
+					best = d;
+				}
+			}
+			return this;
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package project5;
+
+/**
+ * This class shares one {@link Location} object between all the Meteorite objects that landed
+ * at the same coordinates. Location objects cannot be changed, so sharing them is safe, and
+ * the data set repeats coordinates a lot: thousands of finds in Antarctica are recorded at
+ * (0.0, 0.0) or at the few positions of the field camps, so the 38401 located rows of the csv
+ * file only hold 17100 distinct locations.
+ *
+ * The shared Location objects are kept in an open addressing hash table keyed by the bits of
+ * the latitude and the longitude. The table is a plain array of Location objects, whose own
+ * coordinates are compared, so a lookup creates no key object and a slot costs a single
+ * reference.
+ *
+ * Every {@link MeteoriteData} has its own pool (see {@link MeteoriteData#getLocationPool()}),
+ * which the parsers and the recovery filling that collection share. The pool only grows
+ * while its collection lives: a Location stays in it after its Meteorite objects are
+ * removed, and the whole pool is released with the collection. Only the threads filling the
+ * same collection share the lock of a pool.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class LocationPool {
+	/**
+	 * An estimate of the heap taken by one Location object on a 64-bit JVM with compressed
+	 * references: a 12 byte header and 5 doubles, rounded up to a multiple of 8 bytes.
+	 */
+	public static final int LOCATION_BYTES = 56;
+
+	//The Location of every slot, null if the slot is empty. The length is a power of 2, at
+	//	least 3/2 of the number of Locations.
+	private Location[] locations = new Location[1024];
+	private int size = 0;
+	//The number of calls to intern that returned a Location
+	private long requests = 0;
+
+	/**
+	 * Returns the shared Location with the given coordinates, creating it on the first call
+	 * with these coordinates.
+	 *
+	 * @param latitude the latitude, between -90.0 and 90.0
+	 * @param longitude the longitude, between -180.0 and 180.0
+	 * @return the Location with these coordinates, the same object for every call
+	 * @throws IllegalArgumentException if latitude or longitude is out of range, see
+	 * {@link Location#Location(double, double)}
+	 */
+	public synchronized Location intern(double latitude, double longitude)
+			throws IllegalArgumentException {
+		long lat = Double.doubleToLongBits(latitude);
+		long lon = Double.doubleToLongBits(longitude);
+		int mask = locations.length - 1;
+		int slot = hash(lat, lon) & mask;
+		Location location;
+		while ((location = locations[slot]) != null) {
+			if (Double.doubleToLongBits(location.getLatitude()) == lat
+					&& Double.doubleToLongBits(location.getLongitude()) == lon) {
+				requests++;
+				return location;
+			}
+			slot = (slot + 1) & mask;
+		}
+		location = new Location(latitude, longitude);
+		locations[slot] = location;
+		size++;
+		requests++;
+		if (size * 3 > locations.length * 2)
+			grow();
+		return location;
+	}
+
+	/**
+	 * Doubles the table and puts every Location back.
+	 */
+	private void grow() {
+		Location[] old = locations;
+		locations = new Location[old.length * 2];
+		int mask = locations.length - 1;
+		for (Location location : old) {
+			if (location == null)
+				continue;
+			int slot = hash(Double.doubleToLongBits(location.getLatitude()),
+					Double.doubleToLongBits(location.getLongitude())) & mask;
+			while (locations[slot] != null)
+				slot = (slot + 1) & mask;
+			locations[slot] = location;
+		}
+	}
+
+	/**
+	 * Mixes the bits of both coordinates, so that nearby coordinates land in distant slots.
+	 */
+	private static int hash(long latitude, long longitude) {
+		long h = (latitude * 0x9E3779B97F4A7C15L) ^ longitude;
+		h *= 0xC2B2AE3D27D4EB4FL;
+		return (int) (h >>> 32);
+	}
+
+	/**
+	 * Returns the number of distinct Locations in the pool.
+	 *
+	 * @return the number of Location objects created
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of Locations handed out, shared or not.
+	 *
+	 * @return the number of calls to {@link LocationPool#intern(double, double)} that
+	 * returned a Location
+	 */
+	public synchronized long getRequests() {
+		return requests;
+	}
+
+	/**
+	 * Returns an estimate of the heap saved by sharing: the Location objects that were not
+	 * created, minus the table of the pool.
+	 *
+	 * @return the estimated number of bytes saved, negative if the pool costs more than it
+	 * saves
+	 */
+	public synchronized long getSavedBytes() {
+		//A compressed reference per slot
+		long table = (long) locations.length * 4;
+		return (requests - size) * LOCATION_BYTES - table;
+	}
+
+	/**
+	 * @return the pool as "R locations, D distinct, about S KB saved"
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("%d locations, %d distinct, about %d KB saved", requests, size,
+				getSavedBytes() / 1024);
+	}
+}
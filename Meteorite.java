@@ -1,5 +1,7 @@
 package project5;
 
+import java.time.LocalDate;
+
 /**
  * This class creates a Meteorite object that has a {@code name}, {@code id}, {@code mass}, 
  * {@code year}, and {@link Location}.
@@ -7,15 +9,50 @@ package project5;
  * and location do not need to be identified to create the Meteorite object. {@code mass} is 
  * defaulted at -1, {@code year} is defaulted at 0, and {@code loc} is defaulted as null.
  * 
+ * The mass is kept as a whole number of milligrams in a long, so decimal masses like 
+ * "256.8" grams are stored exactly without floating point rounding. When the full landing 
+ * date is known, it is kept as an epoch day next to the year. 
+ * 
+ * A Meteorite may also have the categories name type ("Valid" or "Relict"), class (for 
+ * example "L6") and fall ("Fell" or "Found"). They are stored as codes of a shared 
+ * {@link CategoryDictionary}, see {@link Meteorite#getCategoryCode(int)}. 
+ * 
  * @author Jonason Wu
  * @version 10/5/2020
  */
 public class Meteorite implements Comparable<Meteorite> {
+	/** Category attribute holding the name type, see {@link Meteorite#getNametype()}. */
+	public static final int NAMETYPE = 0;
+	/** Category attribute holding the class, see {@link Meteorite#getRecclass()}. */
+	public static final int RECCLASS = 1;
+	/** Category attribute holding the fall, see {@link Meteorite#getFall()}. */
+	public static final int FALL = 2;
+	/** The number of category attributes. */
+	public static final int CATEGORIES = 3;
+	/** The number of milligrams in a gram. */
+	public static final long MILLIGRAMS = 1000;
+	/** The epoch day of a Meteorite whose landing date is not defined. */
+	public static final int NO_DATE = Integer.MIN_VALUE;
+	//The valid landing days, the same range as the valid years
+	static final int FIRST_DAY = (int) LocalDate.of(1, 1, 1).toEpochDay();
+	static final int LAST_DAY = (int) LocalDate.of(2019, 12, 31).toEpochDay();
+	//The dictionaries of the category attributes, shared by all Meteorite objects
+	private static final CategoryDictionary[] DICTIONARIES = {new CategoryDictionary(), 
+			new CategoryDictionary(), new CategoryDictionary()};
+	
 	private String name;
 	private int id;
-	private int mass = -1;
+	//Mass in milligrams
+	private long mass = -1;
 	private int year = 0;
+	//Landing date as days since 1970-01-01, NO_DATE if not defined
+	private int epochDay = NO_DATE;
 	private Location loc = null;
+	//Codes of the categories in their dictionaries, -1 if not defined
+	private short nametype = -1;
+	private short recclass = -1;
+	private short fall = -1;
+	
 	/**
 	 * This constructor creates a Meteorite object given a valid name and id. {@code name} 
 	 * should not be an empty string and {@code id} should be a positive integer.
@@ -73,14 +110,14 @@ public class Meteorite implements Comparable<Meteorite> {
 	}
 	
 	/**
-	 * Set the mass of the Meteorite object. {@code mass} should be greater than 0.
+	 * Set the mass of the Meteorite object in grams. {@code mass} should be greater than 0.
 	 * 
-	 * @param mass the mass of the Meteorite.
+	 * @param mass the mass of the Meteorite in grams.
 	 * @throws IllegalArgumentException mass is not positive.
 	 */
 	public void setMass(int mass) throws IllegalArgumentException {
 		if (mass > 0) {
-			this.mass = mass;
+			this.mass = mass * MILLIGRAMS;
 		}
 		else {
 			throw new IllegalArgumentException("A valid mass is a positive integer."
@@ -89,23 +126,57 @@ public class Meteorite implements Comparable<Meteorite> {
 	}
 	
 	/**
-	 * Get the mass of the Meteorite object. 
+	 * Set the mass of the Meteorite object in milligrams. {@code mass} should be greater 
+	 * than 0.
 	 * 
-	 * @return the mass of the Meteorite object that calls this method. 
+	 * @param mass the mass of the Meteorite in milligrams.
+	 * @throws IllegalArgumentException mass is not positive.
+	 */
+	public void setMassMilligrams(long mass) throws IllegalArgumentException {
+		if (mass > 0) {
+			this.mass = mass;
+		}
+		else {
+			throw new IllegalArgumentException("A valid mass is a positive number of "
+					+ "milligrams.\nProvided mass: " + mass);
+		}
+	}
+	
+	/**
+	 * Get the mass of the Meteorite object in whole grams. The milligrams are dropped, so a 
+	 * Meteorite lighter than a gram returns 0; use {@link Meteorite#getMassMilligrams()} 
+	 * for the exact mass.
+	 * 
+	 * @return the mass of the Meteorite object that calls this method in grams. 
 	 * Returns -1 if mass was not defined for the Meteorite.
 	 */
 	public int getMass() {
+		if (this.mass == -1)
+			return -1;
+		return (int) Math.min(Integer.MAX_VALUE, this.mass / MILLIGRAMS);
+	}
+	
+	/**
+	 * Get the mass of the Meteorite object in milligrams. 
+	 * 
+	 * @return the mass of the Meteorite object that calls this method in milligrams. 
+	 * Returns -1 if mass was not defined for the Meteorite.
+	 */
+	public long getMassMilligrams() {
 		return this.mass;
 	}
 	
 	/**
 	 * Set the year the Meteorite landed on Earth. {@code year} should be between 0 and 2020.
+	 * The landing day is forgotten if it is in another year.
 	 * 
 	 * @param year the year the Meteorite landed on Earth.
 	 * @throws IllegalArgumentException the year is not a positive number less than 2020
 	 */
 	public void setYear(int year) throws IllegalArgumentException {
 		if (year < 2020 && year > 0) {
+			if (year != this.year)
+				this.epochDay = NO_DATE;
 			this.year = year;
 		}
 		else {
@@ -124,6 +195,44 @@ public class Meteorite implements Comparable<Meteorite> {
 		return this.year;
 	}
 	
+	/**
+	 * Set the day the Meteorite landed on Earth, which also sets the year. The day should be 
+	 * in a valid year, see {@link Meteorite#setYear(int)}.
+	 * 
+	 * @param epochDay the landing day, as the number of days since 1970-01-01 (negative 
+	 * before), see {@link LocalDate#toEpochDay()}.
+	 * @throws IllegalArgumentException the day is not in a year from 1 to 2019
+	 */
+	public void setEpochDay(int epochDay) throws IllegalArgumentException {
+		if (epochDay >= FIRST_DAY && epochDay <= LAST_DAY) {
+			this.epochDay = epochDay;
+			this.year = LocalDate.ofEpochDay(epochDay).getYear();
+		}
+		else {
+			throw new IllegalArgumentException("A valid landing day is in a year from 1 to "
+					+ "2019.\nProvided epoch day: " + epochDay);
+		}
+	}
+	
+	/**
+	 * Get the day the Meteorite landed on Earth.
+	 * 
+	 * @return the landing day as the number of days since 1970-01-01. Returns 
+	 * {@link Meteorite#NO_DATE} if the date was not defined for the Meteorite.
+	 */
+	public int getEpochDay() {
+		return this.epochDay;
+	}
+	
+	/**
+	 * Get the date the Meteorite landed on Earth.
+	 * 
+	 * @return the landing date. Returns null if the date was not defined for the Meteorite.
+	 */
+	public LocalDate getDate() {
+		return this.epochDay == NO_DATE ? null : LocalDate.ofEpochDay(this.epochDay);
+	}
+	
 	/**
 	 * Set the location the Meteorite landed. See {@link Location}
 	 * 
@@ -143,6 +252,101 @@ public class Meteorite implements Comparable<Meteorite> {
 		return this.loc;
 	}
 	
+	/**
+	 * Set the name type of the Meteorite object, "Valid" for most meteorites and "Relict" 
+	 * for highly weathered ones.
+	 * 
+	 * @param nametype the name type of the Meteorite.
+	 * @throws IllegalArgumentException nametype is null or empty.
+	 */
+	public void setNametype(String nametype) throws IllegalArgumentException {
+		this.nametype = (short) DICTIONARIES[NAMETYPE].encode(nametype);
+	}
+	
+	/**
+	 * Get the name type of the Meteorite object.
+	 * 
+	 * @return the name type of the Meteorite. Returns null if it was not defined.
+	 */
+	public String getNametype() {
+		return DICTIONARIES[NAMETYPE].decode(this.nametype);
+	}
+	
+	/**
+	 * Set the class of the Meteorite object, for example "L6" or "Iron, IIAB".
+	 * 
+	 * @param recclass the class of the Meteorite.
+	 * @throws IllegalArgumentException recclass is null or empty.
+	 */
+	public void setRecclass(String recclass) throws IllegalArgumentException {
+		this.recclass = (short) DICTIONARIES[RECCLASS].encode(recclass);
+	}
+	
+	/**
+	 * Get the class of the Meteorite object.
+	 * 
+	 * @return the class of the Meteorite. Returns null if it was not defined.
+	 */
+	public String getRecclass() {
+		return DICTIONARIES[RECCLASS].decode(this.recclass);
+	}
+	
+	/**
+	 * Set whether the Meteorite was seen falling ("Fell") or found later ("Found").
+	 * 
+	 * @param fall the fall of the Meteorite.
+	 * @throws IllegalArgumentException fall is null or empty.
+	 */
+	public void setFall(String fall) throws IllegalArgumentException {
+		this.fall = (short) DICTIONARIES[FALL].encode(fall);
+	}
+	
+	/**
+	 * Get whether the Meteorite was seen falling or found later.
+	 * 
+	 * @return the fall of the Meteorite. Returns null if it was not defined.
+	 */
+	public String getFall() {
+		return DICTIONARIES[FALL].decode(this.fall);
+	}
+	
+	/**
+	 * Get the code of a category of the Meteorite object in the dictionary of that category 
+	 * (see {@link Meteorite#getDictionary(int)}). Comparing codes is the same as comparing 
+	 * the values.
+	 * 
+	 * @param attribute {@link Meteorite#NAMETYPE}, {@link Meteorite#RECCLASS} or 
+	 * {@link Meteorite#FALL}.
+	 * @return the code of the category. Returns -1 if it was not defined.
+	 * @throws IllegalArgumentException attribute is not one of the categories.
+	 */
+	public int getCategoryCode(int attribute) throws IllegalArgumentException {
+		switch (attribute) {
+		case NAMETYPE:
+			return this.nametype;
+		case RECCLASS:
+			return this.recclass;
+		case FALL:
+			return this.fall;
+		default:
+			throw new IllegalArgumentException("Unknown category attribute: " + attribute);
+		}
+	}
+	
+	/**
+	 * Get the dictionary holding the values of a category.
+	 * 
+	 * @param attribute {@link Meteorite#NAMETYPE}, {@link Meteorite#RECCLASS} or 
+	 * {@link Meteorite#FALL}.
+	 * @return the dictionary of the category.
+	 * @throws IllegalArgumentException attribute is not one of the categories.
+	 */
+	public static CategoryDictionary getDictionary(int attribute) throws IllegalArgumentException {
+		if (attribute < 0 || attribute >= CATEGORIES)
+			throw new IllegalArgumentException("Unknown category attribute: " + attribute);
+		return DICTIONARIES[attribute];
+	}
+	
 	/**
 	 * Compares the Meteorites according to name first, disregarding upper or lower case. 
 	 * If they are equal, then compare them by their id's.
@@ -187,6 +391,20 @@ public class Meteorite implements Comparable<Meteorite> {
 		return false;
 	}
 	
+	/**
+	 * Returns a hash code consistent with {@link Meteorite#equals(Object)}: Meteorite objects 
+	 * whose names only differ in case and that have the same id get the same hash code.
+	 * 
+	 * @return the hash code of the name and id.
+	 */
+	@Override
+	public int hashCode() {
+		int hash = this.id;
+		for (int i = 0; i < this.name.length(); i++)
+			hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(this.name.charAt(i)));
+		return hash;
+	}
+	
 	/**
 	 * Formats the Meteorite to return as a String object like: 
 	 * "NAME ID YEAR MASS LATITUDE LONGITUDE" (the parameters
@@ -195,25 +413,27 @@ public class Meteorite implements Comparable<Meteorite> {
 	 * 
 	 * @return A formatted String. NAME takes 20 spaces and is left aligned. ID and YEAR both take 
 	 * 4 spaces and is right
-	 * aligned. MASS is 6 spaces, right aligned. LATITUDE and LONGITUDE both take 10 spaces and
+	 * aligned. MASS is 6 spaces, right aligned, in grams with only the decimals it needs 
+	 * (at most 3). LATITUDE and LONGITUDE both take 10 spaces and
 	 * displayed to 5 digits after the decimal point. Any undefined data value will be replaced 
 	 * by spaces instead of a data value.
 	 */
 	@Override
 	public String toString() {
+		String mass = this.mass == -1 ? "" : formatMass(this.mass);
 		if (this.year != 0) {
 			//Year exists
 			if (this.mass != -1) {
 				//Year and mass exists
 				if (this.loc != null) {
 					//Year, mass, and location exists
-					return String.format("%-20s %4d %4d %6d %10.5f %10.5f", this.name, this.id,
-							this.year, this.mass, this.loc.getLatitude(), this.loc.getLongitude());
+					return String.format("%-20s %4d %4d %6s %10.5f %10.5f", this.name, this.id,
+							this.year, mass, this.loc.getLatitude(), this.loc.getLongitude());
 				}
 				else {
 					//Year and mass exists, location does not exist
-					return String.format("%-20s %4d %4d %6d %10s %10s", this.name, this.id,
-							this.year, this.mass, "", "");
+					return String.format("%-20s %4d %4d %6s %10s %10s", this.name, this.id,
+							this.year, mass, "", "");
 				}
 			}
 			else {
@@ -236,13 +456,13 @@ public class Meteorite implements Comparable<Meteorite> {
 				//Mass exists but year does not
 				if (this.loc != null) {
 					//Mass and location exists but year does not exist
-					return String.format("%-20s %4d %4s %6d %10.5f %10.5f", this.name, this.id, "",
-							this.mass, this.loc.getLatitude(), this.loc.getLongitude());
+					return String.format("%-20s %4d %4s %6s %10.5f %10.5f", this.name, this.id, "",
+							mass, this.loc.getLatitude(), this.loc.getLongitude());
 				}
 				else {
 					//Mass exists but location and year does not exist
-					return String.format("%-20s %4d %4s %6d %10s %10s", this.name, this.id, "",
-							this.mass, "", "");
+					return String.format("%-20s %4d %4s %6s %10s %10s", this.name, this.id, "",
+							mass, "", "");
 				}
 			}
 			else {
@@ -260,4 +480,26 @@ public class Meteorite implements Comparable<Meteorite> {
 			}
 		}
 	}
+	
+	/**
+	 * Formats a mass in milligrams as grams, with only the decimals it needs: 21000 gives 
+	 * "21", 256800 gives "256.8" and 150 gives "0.15".
+	 * 
+	 * @param milligrams a mass in milligrams, not negative
+	 * @return the mass in grams as text
+	 */
+	static String formatMass(long milligrams) {
+		long grams = milligrams / MILLIGRAMS;
+		int fraction = (int) (milligrams % MILLIGRAMS);
+		if (fraction == 0)
+			return Long.toString(grams);
+		//Three digits, without the trailing zeros
+		char[] digits = {(char) ('0' + fraction / 100), (char) ('0' + fraction / 10 % 10), 
+				(char) ('0' + fraction % 10)};
+		int length = 3;
+		while (digits[length - 1] == '0')
+			length--;
+		return new StringBuilder(24).append(grams).append('.').append(digits, 0, length)
+				.toString();
+	}
 }
@@ -1,45 +1,297 @@
 package project5;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleBiFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * This class stores data from Meteorites in 3 different BSTs. The first one contains all 
- * valid Meteorite objects. The second one contains all Meteorites with valid mass ordered 
- * by mass (or natural order if mass is the same), the third contains all Meteorites with 
- * valid year ordered by year (or natural order if year is the same).
+ * This class stores data from Meteorites in a BST holding all valid Meteorite objects in 
+ * natural order, and in a registry of secondary {@link MeteoriteIndex} objects. By default two 
+ * indexes are registered: one contains all Meteorites with valid mass ordered by mass (or 
+ * natural order if mass is the same), the other contains all Meteorites with valid year 
+ * ordered by year (or natural order if year is the same). An index ordered by landing date, 
+ * a grid over the landing sites and bitmaps over the categories are registered too, and 
+ * only built when a query needs them. 
+ * More indexes can be registered with {@link MeteoriteData#registerIndex(MeteoriteIndex, 
+ * boolean)}.
+ * 
+ * A MeteoriteData object is meant for one writer at a time. To add and remove meteorites 
+ * from many threads while others query, use a {@link ConcurrentMeteoriteData} and take a 
+ * {@link ConcurrentMeteoriteData#snapshot()} for the queries only this class offers.
  * 
  * @author Jonason Wu
  * @version 12/3/2020
  */
 public class MeteoriteData {	
+	/** The name of the default index ordered by mass. */
+	public static final String MASS_INDEX = "mass";
+	/** The name of the default index ordered by year. */
+	public static final String YEAR_INDEX = "year";
+	/** The name of the default index ordered by landing date. Built lazily. */
+	public static final String DATE_INDEX = "date";
+	/** The name of the default index over landing sites. Built lazily. */
+	public static final String LOCATION_INDEX = "location";
+	/** The name of the default {@link BitmapIndex} over the categories. Built lazily. */
+	public static final String CATEGORY_INDEX = "category";
+	
 	//Stores all the meteorite objects following natural ordering (by name, then by id)
 	private BST<Meteorite> meteors;
 	
-	//Stores meteorite objects that have mass.
-	//	Ordered based on mass. If mass is equal, then natural ordering
-	private BST<Meteorite> byMass;
+	//The registered secondary indexes. Kept in a list since add and remove go through all
+	//	of them, and there are only a few.
+	private ArrayList<MeteoriteIndex> indexes = new ArrayList<>();
+	
+	//Optional cache of the results of getByMass and getByYear, null if not used
+	private QueryCache cache = null;
+	
+	//True for a result held by a QueryCache, which is shared between callers
+	private boolean readOnly = false;
+	
+	//Optional log of the added and removed meteorites, null if not used
+	private MutationLog log = null;
+	
+	//Landing sites as primitive columns, built on first use and dropped on every change
+	private LocationColumns columns = null;
 	
-	//Stores meteorite objects that have year.
-	//	Ordered based on year. If year is equal, then natural ordering
-	private BST<Meteorite> byYear;
+	//Front-coded names for prefix searches, built on first use and dropped on every change
+	private FrontCodedNames names = null;
+	
+	//Trigrams of the names for approximate searches, built on first use and dropped on 
+	//	every change
+	private TrigramNames trigrams = null;
+	
+	//The Location objects shared by the Meteorite objects loaded into this collection, 
+	//	created on first use
+	private LocationPool locations = null;
 	
 	/**
-	 * Initializes the superclass and get 3 BST that holds {@link Meteorite} objects. One BST
-	 * is sorted by natural ordering, one is sorted by Mass if it exists for the meteorite, 
-	 * and one is sorted by Year, if it exists.
+	 * Initializes the collection with a BST that holds {@link Meteorite} objects sorted by 
+	 * natural ordering, and registers the default indexes: one sorted by Mass if it exists 
+	 * for the meteorite, and one sorted by Year, if it exists.
 	 */
 	public MeteoriteData () {
+		this(false);
+	}
+	
+	/**
+	 * Initializes the collection and registers the default indexes. Used for collections 
+	 * returned by queries, in which the default indexes are only built when they are needed.
+	 * 
+	 * @param lazy true if the default indexes should be built on first use
+	 */
+	private MeteoriteData (boolean lazy) {
 		meteors = new BST<>();
-		byMass = new BST<>(new MassComparator());
-		byYear = new BST<>(new YearComparator());
+		//The csv file is sorted by name, which would make the tree a linked list
+		meteors.setRebalanceFactor(BST.DEFAULT_REBALANCE_FACTOR);
+		registerIndex(new TreeIndex(MASS_INDEX, new MassComparator(), 
+				m -> m.getMassMilligrams() != -1), lazy);
+		registerIndex(new TreeIndex(YEAR_INDEX, new YearComparator(), 
+				m -> m.getYear() != 0), lazy);
+		//Only date range queries need the date order
+		registerIndex(new TreeIndex(DATE_INDEX, new DateComparator(), 
+				m -> m.getEpochDay() != Meteorite.NO_DATE), true);
+		//Only queries restricted by location need the grid, so never build it up front
+		registerIndex(new SpatialIndex(LOCATION_INDEX, 1.0, 
+				m -> m.getLocation() != null), true);
+		//The attributes are numbered like Meteorite.NAMETYPE, RECCLASS and FALL
+		registerIndex(new BitmapIndex(CATEGORY_INDEX, null, 
+				m -> m.getCategoryCode(Meteorite.NAMETYPE), 
+				m -> m.getCategoryCode(Meteorite.RECCLASS), 
+				m -> m.getCategoryCode(Meteorite.FALL)), true);
+	}
+	
+	/**
+	 * Registers a secondary index in this collection. From then on, {@link 
+	 * MeteoriteData#add(Meteorite)} and {@link MeteoriteData#remove(Meteorite)} keep the 
+	 * index up to date. If the index is lazy, it is only built from the meteorites of this 
+	 * collection the first time it is requested with {@link MeteoriteData#getIndex(String)}, 
+	 * and it is not maintained before that.
+	 * 
+	 * @param index the empty index to register
+	 * @param lazy true to build the index on first use, false to build it immediately
+	 * @throws NullPointerException if index is null
+	 * @throws IllegalArgumentException if an index with the same name is already registered
+	 */
+	public void registerIndex(MeteoriteIndex index, boolean lazy) 
+			throws NullPointerException, IllegalArgumentException {
+		if (index == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		if (findIndex(index.getName()) != null)
+			throw new IllegalArgumentException("An index named " + index.getName() 
+					+ " is already registered.");
+		indexes.add(index);
+		if (!lazy)
+			build(index);
+	}
+	
+	/**
+	 * Returns the index registered with the given name, building it first if it is a lazy 
+	 * index that was not requested before.
+	 * 
+	 * @param name the name of the index
+	 * @return the index, or null if no index with that name is registered
+	 */
+	public MeteoriteIndex getIndex(String name) {
+		MeteoriteIndex index = findIndex(name);
+		if (index != null && !index.isBuilt())
+			build(index);
+		return index;
+	}
+	
+	/**
+	 * Finds the registered index with the given name without building it.
+	 * 
+	 * @param name the name of the index
+	 * @return the index, or null if no index with that name is registered
+	 */
+	private MeteoriteIndex findIndex(String name) {
+		for (MeteoriteIndex index : indexes) {
+			if (index.getName().equals(name))
+				return index;
+		}
+		return null;
+	}
+	
+	/**
+	 * Fills the index with all present meteorites of this collection and marks it as 
+	 * maintained. This operation is O(N*H) at most, and O(N log N) for a {@link TreeIndex}.
+	 * 
+	 * @param index the index to build
+	 */
+	private void build(MeteoriteIndex index) {
+		index.build(meteors.iterator());
+		index.markBuilt();
 	}
 
+	/**
+	 * Places a cache in front of {@link MeteoriteData#getByMass(int, int)} and {@link 
+	 * MeteoriteData#getByYear(int)}. Repeated queries then return the same result object, 
+	 * which is read-only. The cached results affected by {@link 
+	 * MeteoriteData#add(Meteorite)} and {@link MeteoriteData#remove(Meteorite)} are dropped.
+	 * 
+	 * @param cache the cache to use, null to stop caching
+	 */
+	public void setQueryCache(QueryCache cache) {
+		if (cache != null)
+			cache.clear();
+		this.cache = cache;
+	}
+	
+	/**
+	 * Get the cache used by this collection.
+	 * 
+	 * @return the cache in front of the queries, null if there is none
+	 */
+	public QueryCache getQueryCache() {
+		return this.cache;
+	}
+	
+	/**
+	 * Rejects changes to a result held by a {@link QueryCache}, which is shared between 
+	 * callers.
+	 * 
+	 * @throws UnsupportedOperationException if this collection is a cached result
+	 */
+	private void checkWritable() throws UnsupportedOperationException {
+		if (readOnly)
+			throw new UnsupportedOperationException("A cached query result cannot be changed.");
+	}
+	
+	/**
+	 * Records every successful {@link MeteoriteData#add(Meteorite)} and {@link 
+	 * MeteoriteData#remove(Meteorite)} in the given log, and writes a new snapshot when the 
+	 * log asks for it. Use {@link MutationLog#recover(MeteoriteData)} before attaching the log 
+	 * to get back the meteorites of a previous session.
+	 * 
+	 * @param log the log to write to, null to stop logging
+	 */
+	public void setMutationLog(MutationLog log) {
+		this.log = log;
+	}
+	
+	/**
+	 * Records that this collection holds the rows of its csv file up to the given byte 
+	 * offset. If there is a mutation log, the offset is logged in order with the mutations, 
+	 * so that a recovery only reads the rows appended to the file after it (see 
+	 * {@link MutationLog#setSourceOffset(long)}).
+	 * 
+	 * @param offset the offset of the first byte of the csv file that was not loaded
+	 * @throws IllegalArgumentException if offset is negative
+	 */
+	public void setSourceOffset(long offset) throws IllegalArgumentException {
+		if (log != null)
+			log.setSourceOffset(offset);
+	}
+	
+	/**
+	 * Writes a mutation to the log if there is one, and compacts the log if it grew too large.
+	 * The mutation is already made, so the log reports a failure to write it and tries again 
+	 * later instead of throwing.
+	 * 
+	 * @param op {@link MutationLog#ADD} or {@link MutationLog#REMOVE}
+	 * @param m the Meteorite added or removed
+	 */
+	private void logMutation(byte op, Meteorite m) {
+		if (log == null)
+			return;
+		log.append(op, m);
+		log.compactIfNeeded(this);
+	}
+	
+	/**
+	 * Drops the columns and name snapshots built from the collection, since they are stale 
+	 * after a change. They are built again on first use.
+	 */
+	private void dropSnapshots() {
+		columns = null;
+		names = null;
+		trigrams = null;
+	}
+	
+	/**
+	 * Replaces all meteorites of this collection with the given ones, which must be sorted 
+	 * in natural ordering without duplicates. The natural ordering tree is built balanced in 
+	 * O(N), and every maintained index is rebuilt. Used to recover a collection in bulk.
+	 * 
+	 * @param sorted the meteorites of the collection in natural ordering
+	 * @throws IllegalArgumentException if the meteorites are not sorted or not unique
+	 */
+	void loadSorted(List<Meteorite> sorted) throws IllegalArgumentException {
+		checkWritable();
+		meteors = new BST<>();
+		meteors.buildBalanced(sorted);
+		meteors.setRebalanceFactor(BST.DEFAULT_REBALANCE_FACTOR);
+		for (MeteoriteIndex index : indexes) {
+			if (index.isBuilt())
+				build(index);
+		}
+		if (cache != null)
+			cache.clear();
+		dropSnapshots();
+	}
+	
+	/**
+	 * Returns the number of Meteorite objects in this collection.
+	 * 
+	 * @return the number of Meteorite objects in this collection
+	 */
+	public int size() {
+		return meteors.size();
+	}
+	
 	/**
 	 * This method should add the given Meteorite object to this collection. This method 
 	 * should perform in O(H) in which H is the height of the tree representing this 
-	 * collection. It will at most add to 3 BST objects.
+	 * collection. It adds to the natural ordering BST and to every maintained index the 
+	 * Meteorite is present in.
 	 * 
 	 * @param m - Meteorite object to add
 	 * @return true if an equal Meteorite object is not already present. False if this 
@@ -49,14 +301,18 @@ public class MeteoriteData {
 	public boolean add(Meteorite m) throws NullPointerException {
 		if (m == null)
 			throw new NullPointerException("Parameter passed in should not be null");
+		checkWritable();
 		if (meteors.add(m)) {
-			//Meteorite is successfully added. Check to see whether to add to other BST's
-			if (m.getMass() != -1) 
-				//Mass is valid, so add it to the BST for mass
-				byMass.add(m);
-			if (m.getYear() != 0)
-				//Year is valid, so add it to the BST for year
-				byYear.add(m);
+			//Meteorite is successfully added. Add it to the indexes it belongs to. Lazy 
+			//	indexes that are not built yet will pick it up when they are built.
+			for (MeteoriteIndex index : indexes) {
+				if (index.isBuilt() && index.isPresent(m))
+					index.insert(m);
+			}
+			if (cache != null)
+				cache.invalidate(m);
+			dropSnapshots();
+			logMutation(MutationLog.ADD, m);
 			return true;
 		}
 		return false;
@@ -83,7 +339,152 @@ public class MeteoriteData {
 		return this.meteors.equals(((MeteoriteData) obj).meteors);
 	}
 	
+	/**
+	 * Returns a new collection with the Meteorite objects that are in this collection, in 
+	 * {@code other}, or in both. For Meteorite objects present in both, the object of this 
+	 * collection is kept. The natural orderings of the two collections are merged side by 
+	 * side and the result is built balanced, so this method performs in O(N+M) in which N 
+	 * and M are the sizes of the two collections.
+	 * 
+	 * @param other the collection to merge with this one
+	 * @return a collection with the Meteorite objects of both collections, empty if both 
+	 * are empty
+	 * @throws NullPointerException if other is null
+	 */
+	public MeteoriteData union (MeteoriteData other) throws NullPointerException {
+		if (other == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		ArrayList<Meteorite> all = new ArrayList<>(this.size() + other.size());
+		//Every side is appended in natural ordering, so one list receives them all sorted
+		merge(other, all, all, all);
+		return balanced(all);
+	}
 	
+	/**
+	 * Returns a new collection with the Meteorite objects of this collection that are also 
+	 * in {@code other}. This method performs in O(N+M), see 
+	 * {@link MeteoriteData#union(MeteoriteData)}.
+	 * 
+	 * @param other the collection to intersect with this one
+	 * @return a collection with the Meteorite objects present in both collections, empty if 
+	 * there are none
+	 * @throws NullPointerException if other is null
+	 */
+	public MeteoriteData intersect (MeteoriteData other) throws NullPointerException {
+		if (other == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		ArrayList<Meteorite> both = new ArrayList<>(Math.min(this.size(), other.size()));
+		merge(other, null, both, null);
+		return balanced(both);
+	}
+	
+	/**
+	 * Returns a new collection with the Meteorite objects of this collection that are not 
+	 * in {@code other}. This method performs in O(N+M), see 
+	 * {@link MeteoriteData#union(MeteoriteData)}.
+	 * 
+	 * @param other the collection whose Meteorite objects are left out
+	 * @return a collection with the Meteorite objects only present in this collection, empty 
+	 * if there are none
+	 * @throws NullPointerException if other is null
+	 */
+	public MeteoriteData difference (MeteoriteData other) throws NullPointerException {
+		if (other == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		ArrayList<Meteorite> onlyThis = new ArrayList<>();
+		merge(other, onlyThis, null, null);
+		return balanced(onlyThis);
+	}
+	
+	/**
+	 * Compares this collection to {@code other}, for example a partner catalog, and returns 
+	 * what changes this collection into {@code other}: the Meteorite objects only present in 
+	 * {@code other} are added, and the ones only present in this collection are removed. 
+	 * Both sides are computed in a single merge of the natural orderings, in O(N+M).
+	 * 
+	 * @param other the collection to compare with this one
+	 * @return the added and the removed Meteorite objects. Both are empty if the collections 
+	 * are equal.
+	 * @throws NullPointerException if other is null
+	 */
+	public Diff diff (MeteoriteData other) throws NullPointerException {
+		if (other == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		ArrayList<Meteorite> removed = new ArrayList<>();
+		ArrayList<Meteorite> added = new ArrayList<>();
+		merge(other, removed, null, added);
+		return new Diff(balanced(added), balanced(removed));
+	}
+	
+	/**
+	 * Walks the natural orderings of this collection and of {@code other} side by side and 
+	 * appends every Meteorite object to the list of its side: {@code onlyThis}, {@code both} 
+	 * (with the object of this collection) or {@code onlyOther}. A null list drops its side. 
+	 * Every list receives its Meteorite objects in natural ordering. The trees are read in 
+	 * place, without copying them, in O(N+M).
+	 */
+	private void merge (MeteoriteData other, List<Meteorite> onlyThis, List<Meteorite> both, 
+			List<Meteorite> onlyOther) {
+		Iterator<Meteorite> mine = this.naturalOrder();
+		Iterator<Meteorite> theirs = other.naturalOrder();
+		Meteorite a = mine.hasNext() ? mine.next() : null;
+		Meteorite b = theirs.hasNext() ? theirs.next() : null;
+		while (a != null && b != null) {
+			int order = a.compareTo(b);
+			if (order < 0) {
+				if (onlyThis != null)
+					onlyThis.add(a);
+				a = mine.hasNext() ? mine.next() : null;
+			}
+			else if (order > 0) {
+				if (onlyOther != null)
+					onlyOther.add(b);
+				b = theirs.hasNext() ? theirs.next() : null;
+			}
+			else {
+				if (both != null)
+					both.add(a);
+				a = mine.hasNext() ? mine.next() : null;
+				b = theirs.hasNext() ? theirs.next() : null;
+			}
+		}
+		//One side is exhausted, the rest of the other side has no match
+		if (onlyThis != null) {
+			for (; a != null; a = mine.hasNext() ? mine.next() : null)
+				onlyThis.add(a);
+		}
+		if (onlyOther != null) {
+			for (; b != null; b = theirs.hasNext() ? theirs.next() : null)
+				onlyOther.add(b);
+		}
+	}
+	
+	/**
+	 * Returns an iterator over the Meteorite objects of this collection in natural ordering 
+	 * that reads the tree in place. The results of the mass and year queries keep the 
+	 * ordering of the index they were cut from, so their Meteorite objects are sorted into 
+	 * natural ordering first, in O(N log N).
+	 */
+	private Iterator<Meteorite> naturalOrder () {
+		if (this.meteors.getComparator() == null)
+			return this.meteors.inorder();
+		ArrayList<Meteorite> sorted = new ArrayList<>(this.meteors.size());
+		for (Iterator<Meteorite> itr = this.meteors.inorder(); itr.hasNext(); )
+			sorted.add(itr.next());
+		sorted.sort(null);
+		return sorted.iterator();
+	}
+	
+	/**
+	 * Creates a collection of the given Meteorite objects, which are sorted in natural 
+	 * ordering without duplicates, with its tree built balanced in O(K). Like the results 
+	 * of the queries, its indexes are only built when they are needed.
+	 */
+	private static MeteoriteData balanced (List<Meteorite> sorted) {
+		MeteoriteData result = new MeteoriteData(true);
+		result.meteors.buildBalanced(sorted);
+		return result;
+	}
 	
 	/**
 	 * This method should return an iterator over all Meteorite objects in this 
@@ -95,6 +496,29 @@ public class MeteoriteData {
 		return this.meteors.iterator();
 	}
 
+	/**
+	 * Returns a sequential stream over all Meteorite objects in this collection in natural 
+	 * ordering. The stream reads the tree directly, so the collection should not be 
+	 * modified while the stream is in use.
+	 * 
+	 * @return a sequential stream over the elements in natural order
+	 */
+	public Stream<Meteorite> stream() {
+		return StreamSupport.stream(this.meteors.spliterator(), false);
+	}
+	
+	/**
+	 * Returns a parallel stream over all Meteorite objects in this collection. The tree is 
+	 * split along its subtrees, so filters, groupings and reductions run on the common 
+	 * ForkJoinPool without copying the collection first. The collection should not be 
+	 * modified while the stream is in use.
+	 * 
+	 * @return a parallel stream over the elements, encountered in natural order
+	 */
+	public Stream<Meteorite> parallelStream() {
+		return StreamSupport.stream(this.meteors.spliterator(), true);
+	}
+	
 	/**
 	 * This method should remove an object equal to the given Meteorite object m from 
 	 * this collection and return true such an object was present. If m is not in this 
@@ -109,6 +533,7 @@ public class MeteoriteData {
 	public boolean remove (Meteorite m) throws NullPointerException {
 		if (m == null) 
 			throw new NullPointerException("Parameter passed in should not be null");
+		checkWritable();
 		
 		//Should only contain 1 meteorite in the ArrayList
 		ArrayList<Meteorite> toRemove = this.meteors.getRange(m, m);
@@ -121,15 +546,170 @@ public class MeteoriteData {
 			Meteorite remove = toRemove.get(0);
 			
 			this.meteors.remove(remove);
-			if (remove.getMass() != -1)
-				this.byMass.remove(remove);
-			if (remove.getYear() != 0)
-				this.byYear.remove(remove);
+			for (MeteoriteIndex index : indexes) {
+				if (index.isBuilt() && index.isPresent(remove))
+					index.delete(remove);
+			}
+			if (cache != null)
+				cache.invalidate(remove);
+			dropSnapshots();
+			logMutation(MutationLog.REMOVE, remove);
 			return true;
 		}
 		return false;
 	}	
 	
+	/**
+	 * Removes every Meteorite object whose mass is from {@code low} to {@code high} 
+	 * milligrams inclusive, for example to purge the records lighter than 1 gram. The range 
+	 * is cut out of the mass index at once with 
+	 * {@link BST#removeRange(Comparable, Comparable)}, and only the K removed Meteorite 
+	 * objects are then removed from the natural ordering and the other indexes. This method 
+	 * should perform in O(H + K*H), instead of a query followed by K calls to 
+	 * {@link MeteoriteData#remove(Meteorite)} that each search every tree again.
+	 * 
+	 * @param low the smallest mass to remove in milligrams.
+	 * @param high the largest mass to remove in milligrams.
+	 * @return the number of removed Meteorite objects
+	 * @throws IllegalArgumentException if {@code low} is below 0 or greater than {@code high}
+	 */
+	public int removeMassRange (long low, long high) throws IllegalArgumentException {
+		if (low < 0 || low > high) {
+			throw new IllegalArgumentException("The mass range is invalid.");
+		}
+		checkWritable();
+		//The lowest valid value for mass is 1 milligram
+		low = Math.max(low, 1);
+		if (this.meteors.isEmpty() || low > high)
+			return 0;
+		TreeIndex index = (TreeIndex) getIndex(MASS_INDEX);
+		return removeCut(index, index.removeRange(massProbe(low, true), massProbe(high, false)));
+	}
+	
+	/**
+	 * Removes every Meteorite object that landed from year {@code low} to year {@code high} 
+	 * inclusive, see {@link MeteoriteData#removeMassRange(long, long)}. 
+	 * 
+	 * @param low the earliest year to remove.
+	 * @param high the latest year to remove.
+	 * @return the number of removed Meteorite objects
+	 * @throws IllegalArgumentException if {@code low} is not positive or greater than 
+	 * {@code high}
+	 */
+	public int removeYearRange (int low, int high) throws IllegalArgumentException {
+		if (low <= 0 || low > high) {
+			throw new IllegalArgumentException("The year range is invalid.");
+		}
+		checkWritable();
+		//Meteorite only accepts years before 2020, so later years cannot match
+		high = Math.min(high, 2019);
+		if (this.meteors.isEmpty() || low > high)
+			return 0;
+		TreeIndex index = (TreeIndex) getIndex(YEAR_INDEX);
+		return removeCut(index, index.removeRange(yearProbe(low, true), yearProbe(high, false)));
+	}
+	
+	/**
+	 * Adds all the given Meteorite objects that are not already present, for example a 
+	 * delta of a partner catalog. The batch is sorted once per ordering: it is merged into 
+	 * the natural ordering tree and into every maintained tree index with a single inorder 
+	 * pass and a balanced rebuild in O(N + K), or added one by one in O(K*H) if the batch is 
+	 * small, whichever is cheaper (see {@link BST#addAll(Collection)}). Every added 
+	 * Meteorite is recorded like {@link MeteoriteData#add(Meteorite)} does. Of equal 
+	 * Meteorite objects in the batch only the first one is added.
+	 * 
+	 * @param batch the Meteorite objects to add
+	 * @return the number of Meteorite objects actually added
+	 * @throws NullPointerException if batch or one of its Meteorite objects is null
+	 */
+	public int addAll (Collection<? extends Meteorite> batch) throws NullPointerException {
+		if (batch == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		checkWritable();
+		ArrayList<Meteorite> added = this.meteors.addAll(batch);
+		if (added.isEmpty())
+			return 0;
+		for (MeteoriteIndex index : indexes) {
+			if (index.isBuilt())
+				index.insertAll(presentIn(index, added));
+		}
+		for (Meteorite m : added) {
+			if (cache != null)
+				cache.invalidate(m);
+			logMutation(MutationLog.ADD, m);
+		}
+		dropSnapshots();
+		return added.size();
+	}
+	
+	/**
+	 * Removes the Meteorite objects equal to the given ones from this collection. Like 
+	 * {@link MeteoriteData#addAll(Collection)}, the batch is sorted once and every tree is 
+	 * either merged with it and rebuilt from the kept Meteorite objects, or updated one by 
+	 * one, whichever is cheaper. The other indexes are only updated for the removed 
+	 * Meteorite objects.
+	 * 
+	 * @param batch the Meteorite objects to remove
+	 * @return the number of Meteorite objects actually removed
+	 * @throws NullPointerException if batch or one of its Meteorite objects is null
+	 */
+	public int removeAll (Collection<? extends Meteorite> batch) throws NullPointerException {
+		if (batch == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		checkWritable();
+		//The stored objects hold the mass and year the indexes are ordered by
+		ArrayList<Meteorite> removed = this.meteors.removeAll(batch);
+		if (removed.isEmpty())
+			return 0;
+		for (MeteoriteIndex index : indexes) {
+			if (index.isBuilt())
+				index.deleteAll(presentIn(index, removed));
+		}
+		for (Meteorite m : removed) {
+			if (cache != null)
+				cache.invalidate(m);
+			logMutation(MutationLog.REMOVE, m);
+		}
+		dropSnapshots();
+		return removed.size();
+	}
+	
+	/**
+	 * Returns the Meteorite objects of the batch that belong to the given index.
+	 */
+	private static ArrayList<Meteorite> presentIn (MeteoriteIndex index, List<Meteorite> batch) {
+		ArrayList<Meteorite> present = new ArrayList<>(batch.size());
+		for (Meteorite m : batch) {
+			if (index.isPresent(m))
+				present.add(m);
+		}
+		return present;
+	}
+	
+	/**
+	 * Removes the Meteorite objects already cut out of the given index from the natural 
+	 * ordering and from the other maintained indexes, and records every removal like 
+	 * {@link MeteoriteData#remove(Meteorite)} does.
+	 * 
+	 * @param cut the index the Meteorite objects were removed from
+	 * @param removed the removed Meteorite objects, as stored in the collection
+	 * @return the number of removed Meteorite objects
+	 */
+	private int removeCut (MeteoriteIndex cut, List<Meteorite> removed) {
+		for (Meteorite m : removed) {
+			this.meteors.remove(m);
+			for (MeteoriteIndex index : indexes) {
+				if (index != cut && index.isBuilt() && index.isPresent(m))
+					index.delete(m);
+			}
+			if (cache != null)
+				cache.invalidate(m);
+			logMutation(MutationLog.REMOVE, m);
+		}
+		if (!removed.isEmpty())
+			dropSnapshots();
+		return removed.size();
+	}
 	
 	/**
 	 * This method should return a collection of all Meteorite objects with mass within delta 
@@ -149,6 +729,41 @@ public class MeteoriteData {
 	 * @throws IllegalArgumentException if {@code mass} or {@code delta} is below 0
 	 */
 	public MeteoriteData getByMass (int mass, int delta) throws IllegalArgumentException {
+		if (mass < 0 || delta < 0) {
+			throw new IllegalArgumentException("Mass cannot be less than 0.");
+		}
+		return getByMassMilligrams(mass * Meteorite.MILLIGRAMS, delta * Meteorite.MILLIGRAMS);
+	}
+	
+	/**
+	 * Same as {@link MeteoriteData#getByMass(int, int)}, with both values specified in 
+	 * milligrams, so that decimal masses can be searched for exactly. 
+	 * 
+	 * @param mass the mass of the meteorite to find in milligrams.
+	 * @param delta the allowed range of error away from the mass in milligrams.
+	 * @return A {@link MeteoriteData} object with a tree inside. The tree contains
+	 * all meteorites having mass within the range of {@code mass} plus or minus 
+	 * {@code delta}. If tree is empty (no matches found), null is returned.
+	 * @throws IllegalArgumentException if {@code mass} or {@code delta} is below 0
+	 */
+	public MeteoriteData getByMassMilligrams (long mass, long delta) 
+			throws IllegalArgumentException {
+		if (!Metrics.ENABLED)
+			return massRange(mass, delta);
+		long start = System.nanoTime();
+		try {
+			return massRange(mass, delta);
+		}
+		finally {
+			Metrics.MASS_QUERY.record(System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * Continuation of {@link MeteoriteData#getByMassMilligrams(long, long)}, which times it 
+	 * if {@link Metrics#ENABLED}.
+	 */
+	private MeteoriteData massRange (long mass, long delta) throws IllegalArgumentException {
 		if (mass < 0 || delta < 0) {
 			throw new IllegalArgumentException("Mass cannot be less than 0.");
 		}
@@ -157,32 +772,39 @@ public class MeteoriteData {
 			return null;
 		
 		//Lower range of comparing
-		int lowRange;
+		long lowRange;
 		//Upper range of comparing
-		int highRange = mass + delta;
-		//The lowest valid value for mass is 1
+		long highRange = mass > Long.MAX_VALUE - delta ? Long.MAX_VALUE : mass + delta;
+		//The lowest valid value for mass is 1 milligram
 		if (mass <= delta)
 			lowRange = 1;
 		else
 			lowRange = mass - delta;
 		
-		//Get references of the first and last meteorite from natural ordering
-		Meteorite first = this.meteors.first();
-		Meteorite last = this.meteors.last();
+		//Queries with the same range share the cached result
+		if (cache != null) {
+			QueryCache.Entry entry = cache.get(QueryCache.Kind.MASS, lowRange, highRange);
+			if (entry != null)
+				return entry.result;
+		}
 		
-		//Create new Meteorites and replace masses with the range of the mass
-		Meteorite from = new Meteorite(first.getName(), first.getId());
-		Meteorite to = new Meteorite(last.getName(), last.getId());
-		from.setMass(lowRange);
-		to.setMass(highRange);
+		//Create new Meteorites with the range of the mass
+		Meteorite from = massProbe(lowRange, true);
+		Meteorite to = massProbe(highRange, false);
 		
 		//Create MeteoriteData object to store the matching meteorites
-		MeteoriteData same = new MeteoriteData();
+		MeteoriteData same = new MeteoriteData(true);
 		//Since iterator() iterates meteors BST, just add the BST returned into meteors.
-		//	Adding to other BST objects is unneccesary.
-		same.meteors = this.byMass.getRangeBST(from, to);
+		//	The indexes of the result are only built if they are requested.
+		same.meteors = ((TreeIndex) getIndex(MASS_INDEX)).getRangeBST(from, to);
 		if (same.meteors.isEmpty())
-			return null;
+			same = null;
+		if (cache != null) {
+			if (same != null)
+				same.readOnly = true;
+			cache.put(QueryCache.Kind.MASS, lowRange, highRange, same, 
+					same == null ? 0 : same.meteors.size());
+		}
 		return same;
 	}
 	
@@ -204,10 +826,12 @@ public class MeteoriteData {
 		if (this.meteors.isEmpty()) {
 			return null;
 		}
+		long start = Metrics.ENABLED ? System.nanoTime() : 0;
 		
 		Iterator<Meteorite> itr = this.meteors.iterator();
 		
-		//Set up dummy distance
+		//Only the order of the distances matters, so compare squared chord lengths, which 
+		//	need no trigonometry. Set up dummy distance.
 		double distance = -1.0;
 		Meteorite closest = null;
 		while (itr.hasNext()) {
@@ -219,21 +843,125 @@ public class MeteoriteData {
 			} 
 			else if (distance < 0) {
 				//The first time a Meteorite has a location
-				distance = loc.getDistance(location);
+				distance = loc.chordSquared(location);
 				closest = current;
 			} 
 			else {
 				//Compare distances
-				double compDist = loc.getDistance(location);
+				double compDist = loc.chordSquared(location);
 				if (distance > compDist) {
 					distance = compDist;
 					closest = current;
 				}
 			}
 		}
+		if (Metrics.ENABLED)
+			Metrics.LOCATION_QUERY.record(System.nanoTime() - start);
 		return closest;
 	}
 	
+	/**
+	 * This method finds the Meteorite object nearest to the location {@code loc} according 
+	 * to the given distance function, for example a travel time or a distance on another 
+	 * model of the Earth that no index can answer. The function is called as 
+	 * {@code distance.applyAsDouble(loc, location)} for the location of every Meteorite 
+	 * object that has one. 
+	 * 
+	 * When {@code parallel} is true the scan is split into chunks of the landing site columns 
+	 * (see {@link MeteoriteData#getLocationColumns()}) that are searched by fork/join tasks, 
+	 * so the time drops with the number of cores. If several Meteorite objects are equally 
+	 * near, the first one in natural ordering is returned, so the parallel and the serial 
+	 * scan always give the same answer as {@link MeteoriteData#getByLocation(Location)}.
+	 * 
+	 * @param loc the location to search from.
+	 * @param distance the distance function, null to use the distance of 
+	 * {@link Location#getDistance(Location)}.
+	 * @param parallel true to search with all cores.
+	 * @return the Meteorite object nearest to {@code loc}, null if no Meteorite object has 
+	 * a location.
+	 * @throws IllegalArgumentException if {@code loc} is null.
+	 */
+	public Meteorite getByLocation (Location loc, ToDoubleBiFunction<Location, Location> distance, 
+			boolean parallel) throws IllegalArgumentException {
+		if (loc == null) {
+			throw new IllegalArgumentException("Location is undefined.");
+		}
+		long start = Metrics.ENABLED ? System.nanoTime() : 0;
+		LocationColumns sites = getLocationColumns();
+		int position = sites.nearest(loc, distance, parallel);
+		if (Metrics.ENABLED)
+			Metrics.LOCATION_QUERY.record(System.nanoTime() - start);
+		return position < 0 ? null : sites.get(position);
+	}
+	
+	/**
+	 * Returns the landing sites of this collection as primitive columns, for scans that need 
+	 * the distance to every Meteorite. The columns are built on the first call after the 
+	 * collection changed, in O(N), and are in natural ordering.
+	 * 
+	 * @return the landing sites of the Meteorite objects that have a location
+	 */
+	public LocationColumns getLocationColumns() {
+		if (columns == null)
+			columns = new LocationColumns(this.meteors.iterator(), this.meteors.size());
+		return columns;
+	}
+	
+	/**
+	 * This method returns a collection of the Meteorite objects whose name starts with the 
+	 * given prefix, ignoring case like the natural ordering does, organized by natural 
+	 * ordering. For example "allan hills" finds "Allan Hills 77005". 
+	 * 
+	 * The search uses front-coded names (see {@link FrontCodedNames}) built from the natural 
+	 * ordering in O(N) on the first search after the collection changed. A search then 
+	 * performs in O(P*log(N) + K) in which P is the length of the prefix and K the number of 
+	 * Meteorite objects returned.
+	 * 
+	 * @param prefix the beginning of the names to find.
+	 * @param limit the largest number of Meteorite objects to return.
+	 * @return a {@link MeteoriteData} with at most {@code limit} matching Meteorite objects, 
+	 * empty if there are none.
+	 * @throws IllegalArgumentException if {@code prefix} is null or {@code limit} is not 
+	 * positive.
+	 */
+	public MeteoriteData getByNamePrefix (String prefix, int limit) 
+			throws IllegalArgumentException {
+		if (prefix == null || limit <= 0) {
+			throw new IllegalArgumentException("Need a prefix and a positive limit.");
+		}
+		if (names == null)
+			names = new FrontCodedNames(this.meteors.iterator(), this.meteors.size());
+		//The matches are in natural ordering already, so build the tree balanced
+		MeteoriteData same = new MeteoriteData(true);
+		same.meteors.buildBalanced(names.startingWith(prefix, limit));
+		return same;
+	}
+	
+	/**
+	 * This method returns the {@code k} Meteorite objects whose name is closest to the given 
+	 * name by edit distance, ignoring case and diacritics, for names typed with typos like 
+	 * "Allan Hils". 
+	 * 
+	 * The search uses a trigram index of the names (see {@link TrigramNames}), built in 
+	 * O(N) on the first search after the collection changed, and only computes the edit 
+	 * distance of the few names sharing the most trigrams with {@code name}. Names that 
+	 * share no trigram with {@code name} are never returned.
+	 * 
+	 * @param name the name to look for.
+	 * @param k the largest number of Meteorite objects to return.
+	 * @return at most {@code k} Meteorite objects, from the closest name to the farthest, and 
+	 * in natural ordering for names at the same distance.
+	 * @throws IllegalArgumentException if {@code name} is null or {@code k} is not positive.
+	 */
+	public ArrayList<Meteorite> searchName (String name, int k) throws IllegalArgumentException {
+		if (name == null || k <= 0) {
+			throw new IllegalArgumentException("Need a name and a positive number of results.");
+		}
+		if (trigrams == null)
+			trigrams = new TrigramNames(this.meteors.iterator(), this.meteors.size());
+		return trigrams.closest(name, k);
+	}
+	
 	/**
 	 * This method should return a collection of all Meteorite objects that landed on Earth 
 	 * on the year specified. The returned collection should be organized based on the year 
@@ -250,6 +978,22 @@ public class MeteoriteData {
 	 * @throws IllegalArgumentException year is less than 0
 	 */
 	public MeteoriteData getByYear (int year) throws IllegalArgumentException {
+		if (!Metrics.ENABLED)
+			return yearRange(year);
+		long start = System.nanoTime();
+		try {
+			return yearRange(year);
+		}
+		finally {
+			Metrics.YEAR_QUERY.record(System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * Continuation of {@link MeteoriteData#getByYear(int)}, which times it if 
+	 * {@link Metrics#ENABLED}.
+	 */
+	private MeteoriteData yearRange (int year) throws IllegalArgumentException {
 		if (year <= 0) {
 			//0 is an invalid year for Meteorite, so there will not be any Meteorites to return.
 			if (year == 0)
@@ -261,39 +1005,384 @@ public class MeteoriteData {
 		if (this.meteors.isEmpty())
 			return new MeteoriteData();
 		
-		//Get the first and last meteorites of the collection of Meteorite objects
-		Meteorite first = this.meteors.first();
-		Meteorite last = this.meteors.last();
+		//Queries for the same year share the cached result
+		if (cache != null) {
+			QueryCache.Entry entry = cache.get(QueryCache.Kind.YEAR, year, year);
+			if (entry != null)
+				return entry.result;
+		}
 		
-		//Create new Meteorites with the first and last and set the year to the desired year
-		Meteorite from = new Meteorite(first.getName(), first.getId());
-		Meteorite to = new Meteorite(last.getName(), last.getId());
-		from.setYear(year);
-		to.setYear(year);
+		//Create new Meteorites with the desired year
+		Meteorite from = yearProbe(year, true);
+		Meteorite to = yearProbe(year, false);
 		
 		//Create MeteoriteData object to return
-		MeteoriteData same = new MeteoriteData();
+		MeteoriteData same = new MeteoriteData(true);
 		//Get the collection of Meteorite objects that match the given year and place that 
 		//	into BST collection named meteors.
-		same.meteors = this.byYear.getRangeBST(from, to);
+		same.meteors = ((TreeIndex) getIndex(YEAR_INDEX)).getRangeBST(from, to);
 		//If there are no Meteorites that fit the criteria, return empty MeteoriteData() object
 		if (same.meteors.isEmpty())
-			return new MeteoriteData();
+			same = new MeteoriteData();
+		if (cache != null) {
+			same.readOnly = true;
+			cache.put(QueryCache.Kind.YEAR, year, year, same, same.meteors.size());
+		}
 		return same;
 	}	
 	
+	/**
+	 * Performs the given action on every Meteorite object with mass within delta grams of 
+	 * the specified mass, in the order of {@link MeteoriteData#getByMass(int, int)}, until 
+	 * the action returns false. Unlike getByMass, no collection is created: the meteorites 
+	 * are read from the mass index as they are visited, so nothing is allocated per 
+	 * Meteorite and this method should perform in O(K+H) in which K is the number of 
+	 * visited Meteorite objects. The collection should not be modified by the action.
+	 * 
+	 * @param mass the mass of the meteorites to visit.
+	 * @param delta the allowed range of error away from the mass.
+	 * @param action the action to perform on each Meteorite. Returning false stops the walk.
+	 * @return true if all matching meteorites were visited, false if the action stopped 
+	 * the walk
+	 * @throws NullPointerException if {@code action} is null
+	 * @throws IllegalArgumentException if {@code mass} or {@code delta} is below 0
+	 */
+	public boolean forEachByMass (int mass, int delta, Predicate<? super Meteorite> action) 
+			throws NullPointerException, IllegalArgumentException {
+		if (mass < 0 || delta < 0) {
+			throw new IllegalArgumentException("Mass cannot be less than 0.");
+		}
+		return forEachByMassMilligrams(mass * Meteorite.MILLIGRAMS, 
+				delta * Meteorite.MILLIGRAMS, action);
+	}
+	
+	/**
+	 * Same as {@link MeteoriteData#forEachByMass(int, int, Predicate)}, with both values 
+	 * specified in milligrams. 
+	 * 
+	 * @param mass the mass of the meteorites to visit in milligrams.
+	 * @param delta the allowed range of error away from the mass in milligrams.
+	 * @param action the action to perform on each Meteorite. Returning false stops the walk.
+	 * @return true if all matching meteorites were visited, false if the action stopped 
+	 * the walk
+	 * @throws NullPointerException if {@code action} is null
+	 * @throws IllegalArgumentException if {@code mass} or {@code delta} is below 0
+	 */
+	public boolean forEachByMassMilligrams (long mass, long delta, 
+			Predicate<? super Meteorite> action) 
+			throws NullPointerException, IllegalArgumentException {
+		if (action == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		if (mass < 0 || delta < 0) {
+			throw new IllegalArgumentException("Mass cannot be less than 0.");
+		}
+		if (this.meteors.isEmpty())
+			return true;
+		//The lowest valid value for mass is 1 milligram
+		long lowRange = mass <= delta ? 1 : mass - delta;
+		long highRange = mass > Long.MAX_VALUE - delta ? Long.MAX_VALUE : mass + delta;
+		return walk((TreeIndex) getIndex(MASS_INDEX), massProbe(lowRange, true), 
+				massProbe(highRange, false), action, Metrics.MASS_QUERY);
+	}
+	
+	/**
+	 * Performs the given action on every Meteorite object that landed on the given year, in 
+	 * natural ordering, until the action returns false. Like 
+	 * {@link MeteoriteData#forEachByMass(int, int, Predicate)}, the meteorites are read from 
+	 * the year index in place in O(K+H), and the collection should not be modified by the 
+	 * action.
+	 * 
+	 * @param year the landing year of the meteorites to visit. Nothing is visited for 0, 
+	 * which is not a valid year.
+	 * @param action the action to perform on each Meteorite. Returning false stops the walk.
+	 * @return true if all matching meteorites were visited, false if the action stopped 
+	 * the walk
+	 * @throws NullPointerException if {@code action} is null
+	 * @throws IllegalArgumentException if {@code year} is less than 0 or after 2019, like 
+	 * {@link MeteoriteData#getByYear(int)}
+	 */
+	public boolean forEachByYear (int year, Predicate<? super Meteorite> action) 
+			throws NullPointerException, IllegalArgumentException {
+		if (action == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		//Meteorite only accepts years from 1 to 2019
+		if (year < 0 || year > 2019) {
+			throw new IllegalArgumentException("The year is invalid. " 
+					+ "Need positive integer for year.");
+		}
+		if (year == 0 || this.meteors.isEmpty())
+			return true;
+		return walk((TreeIndex) getIndex(YEAR_INDEX), yearProbe(year, true), 
+				yearProbe(year, false), action, Metrics.YEAR_QUERY);
+	}
+	
+	/**
+	 * Performs the action on the range of the tree index until it returns false. If 
+	 * {@link Metrics#ENABLED}, the latency of the walk is recorded without the time spent 
+	 * in the action, which may be printing every Meteorite.
+	 */
+	private static boolean walk (TreeIndex index, Meteorite from, Meteorite to, 
+			Predicate<? super Meteorite> action, Metrics.Histogram latency) {
+		return timed(visit -> index.forEachInRange(from, to, visit), action, latency);
+	}
+	
+	/**
+	 * Performs the walk with the given action. If {@link Metrics#ENABLED}, the latency of 
+	 * the walk is recorded without the time spent in the action. Also used by 
+	 * {@link ConcurrentMeteoriteData}.
+	 * 
+	 * @param walk calls the action it is given on every visited Meteorite
+	 * @param action the action to perform on each Meteorite. Returning false stops the walk.
+	 * @param latency the histogram to record the latency in
+	 * @return the result of the walk
+	 */
+	static boolean timed (Predicate<Predicate<? super Meteorite>> walk, 
+			Predicate<? super Meteorite> action, Metrics.Histogram latency) {
+		if (!Metrics.ENABLED)
+			return walk.test(action);
+		long[] inAction = {0};
+		long start = System.nanoTime();
+		boolean all = walk.test(m -> {
+			long before = System.nanoTime();
+			try {
+				return action.test(m);
+			}
+			finally {
+				inAction[0] += System.nanoTime() - before;
+			}
+		});
+		latency.record(System.nanoTime() - start - inAction[0]);
+		return all;
+	}
+	
+	/**
+	 * Performs the given action on every Meteorite object that landed from date {@code from} 
+	 * to date {@code to} inclusive, from the earliest to the latest landing date, and for 
+	 * meteorite objects with equal dates according to the natural ordering, until the action 
+	 * returns false. Meteorite objects with only a landing year are not visited. 
+	 * 
+	 * The meteorites are read from the date index as they are visited, without creating a 
+	 * collection, so this method should perform in O(K+H) in which K is the number of 
+	 * visited Meteorite objects and H is the height of the date index. The collection 
+	 * should not be modified by the action.
+	 * 
+	 * @param from the earliest landing date to visit.
+	 * @param to the latest landing date to visit.
+	 * @param action the action to perform on each Meteorite. Returning false stops the walk.
+	 * @return true if all matching meteorites were visited, false if the action stopped 
+	 * the walk
+	 * @throws NullPointerException if {@code from}, {@code to} or {@code action} is null
+	 * @throws IllegalArgumentException if {@code from} is after {@code to}
+	 */
+	public boolean getByDateRange (LocalDate from, LocalDate to, 
+			Predicate<? super Meteorite> action) 
+			throws NullPointerException, IllegalArgumentException {
+		if (from == null || to == null || action == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		if (from.isAfter(to))
+			throw new IllegalArgumentException("The first date cannot be after the last date.");
+		//Dates outside the valid years cannot match anything
+		long first = Math.max(from.toEpochDay(), Meteorite.FIRST_DAY);
+		long last = Math.min(to.toEpochDay(), Meteorite.LAST_DAY);
+		if (this.meteors.isEmpty() || first > last)
+			return true;
+		return ((TreeIndex) getIndex(DATE_INDEX)).forEachInRange(dateProbe((int) first, true), 
+				dateProbe((int) last, false), action);
+	}
+	
+	/**
+	 * This method returns a collection of all Meteorite objects matching every restriction 
+	 * of the given query, organized by natural ordering. 
+	 * 
+	 * The number of candidates of each restriction is estimated from the statistics of its 
+	 * index (exact counts from the subtree sizes of the mass and year trees, the size of the 
+	 * cells of the location grid, and the cardinality of the intersection of the category 
+	 * bitmaps). Only the index with the fewest candidates is scanned, 
+	 * and the other restrictions are tested on each candidate, so the cost follows the 
+	 * smallest candidate set instead of the sum of all of them.
+	 * 
+	 * @param query the restrictions the returned meteorites should satisfy
+	 * @return a {@link MeteoriteData} with all matching meteorites, empty if there are none
+	 * @throws NullPointerException if query is null
+	 */
+	public MeteoriteData query (MeteoriteQuery query) throws NullPointerException {
+		if (query == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		MeteoriteData result = new MeteoriteData(true);
+		if (this.meteors.isEmpty())
+			return result;
+		
+		//Estimate the candidates of every restriction. Without restrictions the whole 
+		//	collection is scanned.
+		int best = this.meteors.size();
+		MeteoriteIndex driver = null;
+		Meteorite from = null;
+		Meteorite to = null;
+		if (query.hasMass()) {
+			Meteorite low = massProbe(query.getMassLow(), true);
+			Meteorite high = massProbe(query.getMassHigh(), false);
+			TreeIndex index = (TreeIndex) getIndex(MASS_INDEX);
+			int count = index.countRange(low, high);
+			if (count <= best) {
+				best = count;
+				driver = index;
+				from = low;
+				to = high;
+			}
+		}
+		if (query.hasYear()) {
+			//Meteorite only accepts years before 2020, so later years cannot match
+			if (query.getYearLow() >= 2020)
+				return result;
+			Meteorite low = yearProbe(query.getYearLow(), true);
+			Meteorite high = yearProbe(Math.min(query.getYearHigh(), 2019), false);
+			TreeIndex index = (TreeIndex) getIndex(YEAR_INDEX);
+			int count = index.countRange(low, high);
+			if (count <= best) {
+				best = count;
+				driver = index;
+				from = low;
+				to = high;
+			}
+		}
+		if (query.hasLocation()) {
+			SpatialIndex index = (SpatialIndex) getIndex(LOCATION_INDEX);
+			int count = index.countCandidates(query.getCenter(), query.getRadius());
+			if (count < best) {
+				best = count;
+				driver = index;
+			}
+		}
+		//Intersect the bitmaps of the restricted categories
+		CompressedBitmap selected = null;
+		for (int a = 0; a < Meteorite.CATEGORIES; a++) {
+			if (!query.hasCategory(a))
+				continue;
+			CompressedBitmap values = ((BitmapIndex) getIndex(CATEGORY_INDEX))
+					.get(a, query.getCategory(a));
+			selected = selected == null ? values : selected.and(values);
+		}
+		if (selected != null && selected.cardinality() < best) {
+			best = selected.cardinality();
+			driver = findIndex(CATEGORY_INDEX);
+		}
+		
+		//Nothing can match if one of the restrictions has no candidates
+		if (best == 0)
+			return result;
+		
+		//Scan the most selective index and filter the rest on the fly
+		ArrayList<Meteorite> matches = new ArrayList<>();
+		if (driver instanceof TreeIndex) {
+			((TreeIndex) driver).forEachInRange(from, to, m -> {
+				if (query.matches(m))
+					matches.add(m);
+				return true;
+			});
+		}
+		else if (driver instanceof SpatialIndex) {
+			((SpatialIndex) driver).forEachWithin(query.getCenter(), query.getRadius(), m -> {
+				if (query.matches(m))
+					matches.add(m);
+			});
+		}
+		else if (driver instanceof BitmapIndex) {
+			BitmapIndex index = (BitmapIndex) driver;
+			selected.forEach(ordinal -> {
+				Meteorite m = index.getRecord(ordinal);
+				if (query.matches(m))
+					matches.add(m);
+			});
+		}
+		else {
+			this.meteors.forEachInRange(this.meteors.first(), this.meteors.last(), m -> {
+				if (query.matches(m))
+					matches.add(m);
+				return true;
+			});
+		}
+		
+		//Only the natural ordering scan returns the matches sorted already. Adding sorted 
+		//	matches one by one would create a linkedlist-like tree, so build it balanced.
+		if (driver != null)
+			matches.sort(null);
+		result.meteors.buildBalanced(matches);
+		return result;
+	}
+	
+	/**
+	 * Get the pool of the Location objects of this collection, for the parsers and the 
+	 * recovery that fill it (see {@link MeteoriteParser#MeteoriteParser(LocationPool)}). The 
+	 * pool is released with this collection.
+	 * 
+	 * @return the pool of the Location objects of this collection
+	 */
+	public LocationPool getLocationPool() {
+		if (locations == null)
+			locations = new LocationPool();
+		return locations;
+	}
+	
+	/**
+	 * Returns the trees of this collection by name: "natural" for the tree of all 
+	 * meteorites, then the tree of every built {@link TreeIndex}. Used by {@link Metrics}.
+	 * 
+	 * @return the trees in registration order
+	 */
+	LinkedHashMap<String, BST<Meteorite>> getTrees() {
+		LinkedHashMap<String, BST<Meteorite>> trees = new LinkedHashMap<>();
+		trees.put("natural", this.meteors);
+		for (MeteoriteIndex index : indexes) {
+			if (index instanceof TreeIndex && index.isBuilt())
+				trees.put(index.getName(), ((TreeIndex) index).getTree());
+		}
+		return trees;
+	}
+	
+	/**
+	 * Creates a Meteorite used as an endpoint of a range in the mass index. A lower endpoint 
+	 * gets the name and id of the first Meteorite in natural ordering, and a higher endpoint 
+	 * the ones of the last Meteorite, so that every Meteorite with equal mass falls in the 
+	 * range. The collection should not be empty.
+	 * 
+	 * @param mass the mass of the endpoint in milligrams
+	 * @param low true for the lower endpoint, false for the higher endpoint
+	 * @return the endpoint to pass to the mass index
+	 */
+	private Meteorite massProbe(long mass, boolean low) {
+		Meteorite bound = low ? this.meteors.first() : this.meteors.last();
+		Meteorite probe = new Meteorite(bound.getName(), bound.getId());
+		probe.setMassMilligrams(mass);
+		return probe;
+	}
+	
+	/**
+	 * Creates a Meteorite used as an endpoint of a range in the year index. See 
+	 * {@link MeteoriteData#massProbe(long, boolean)}. The collection should not be empty.
+	 * 
+	 * @param year the year of the endpoint
+	 * @param low true for the lower endpoint, false for the higher endpoint
+	 * @return the endpoint to pass to the year index
+	 */
+	private Meteorite yearProbe(int year, boolean low) {
+		Meteorite bound = low ? this.meteors.first() : this.meteors.last();
+		Meteorite probe = new Meteorite(bound.getName(), bound.getId());
+		probe.setYear(year);
+		return probe;
+	}
+	
 	/**
 	 * The comparator used for changing the natural ordering to order by mass instead. If mass 
 	 * is the same, then order by natural ordering for the object.
 	 * 
 	 * @author Jonason Wu
 	 */
-	private class MassComparator implements Comparator<Meteorite> {
+	static class MassComparator implements Comparator<Meteorite> {
 		@Override
 		public int compare(Meteorite o1, Meteorite o2) {
-			if (o1.getMass() > o2.getMass())
+			if (o1.getMassMilligrams() > o2.getMassMilligrams())
 				return 1;
-			else if (o1.getMass() < o2.getMass())
+			else if (o1.getMassMilligrams() < o2.getMassMilligrams())
 				return -1;
 			else
 				//Natural ordering if the Meteorites are equal in mass
@@ -301,13 +1390,28 @@ public class MeteoriteData {
 		}
 	}
 	
+	/**
+	 * Creates a Meteorite used as an endpoint of a range in the date index. See 
+	 * {@link MeteoriteData#massProbe(long, boolean)}. The collection should not be empty.
+	 * 
+	 * @param epochDay the landing day of the endpoint
+	 * @param low true for the lower endpoint, false for the higher endpoint
+	 * @return the endpoint to pass to the date index
+	 */
+	private Meteorite dateProbe(int epochDay, boolean low) {
+		Meteorite bound = low ? this.meteors.first() : this.meteors.last();
+		Meteorite probe = new Meteorite(bound.getName(), bound.getId());
+		probe.setEpochDay(epochDay);
+		return probe;
+	}
+	
 	/**
 	 * The comparator used for changing the natural ordering to order by year instead. If
 	 * year is the same, then order by natural ordering for that object.
 	 * 
 	 * @author Jonason Wu
 	 */
-	private static class YearComparator implements Comparator<Meteorite> {
+	static class YearComparator implements Comparator<Meteorite> {
 		@Override
 		public int compare(Meteorite o1, Meteorite o2) {
 			if (o1.getYear() > o2.getYear())
@@ -319,4 +1423,61 @@ public class MeteoriteData {
 				return o1.compareTo(o2);
 		}
 	}
+	
+	/**
+	 * The comparator used for changing the natural ordering to order by landing date 
+	 * instead. If the date is the same, then order by natural ordering for the object.
+	 * 
+	 * @author Jonason Wu
+	 */
+	private static class DateComparator implements Comparator<Meteorite> {
+		@Override
+		public int compare(Meteorite o1, Meteorite o2) {
+			int order = Integer.compare(o1.getEpochDay(), o2.getEpochDay());
+			//Natural ordering if the Meteorites landed the same day
+			return order != 0 ? order : o1.compareTo(o2);
+		}
+	}
+	
+	/**
+	 * The differences between two collections, see {@link MeteoriteData#diff(MeteoriteData)}.
+	 */
+	public static class Diff {
+		private MeteoriteData added;
+		private MeteoriteData removed;
+		
+		private Diff(MeteoriteData added, MeteoriteData removed) {
+			this.added = added;
+			this.removed = removed;
+		}
+		
+		/**
+		 * @return the Meteorite objects only present in the compared collection
+		 */
+		public MeteoriteData getAdded() {
+			return added;
+		}
+		
+		/**
+		 * @return the Meteorite objects only present in the collection diff was called on
+		 */
+		public MeteoriteData getRemoved() {
+			return removed;
+		}
+		
+		/**
+		 * @return true if the two collections hold equal Meteorite objects
+		 */
+		public boolean isEmpty() {
+			return added.size() == 0 && removed.size() == 0;
+		}
+		
+		/**
+		 * @return the differences as "+A -R", the numbers of added and removed objects
+		 */
+		@Override
+		public String toString() {
+			return "+" + added.size() + " -" + removed.size();
+		}
+	}
 }
@@ -0,0 +1,152 @@
+package project5;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * This class is the base of every secondary index registered in a {@link MeteoriteData}
+ * collection. An index is declared with a name, a presence predicate deciding which
+ * {@link Meteorite} objects belong to it (for example only the ones with a valid mass), and
+ * a backing structure provided by the subclass ({@link TreeIndex}, {@link SpatialIndex} or
+ * {@link BitmapIndex}).
+ *
+ * An index may be registered lazily. A lazy index is not maintained by
+ * {@link MeteoriteData#add(Meteorite)} and {@link MeteoriteData#remove(Meteorite)} until it
+ * is requested for the first time, at which point it is built from the whole collection.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public abstract class MeteoriteIndex {
+	//The name used to look up the index in the collection
+	private String name;
+	//Decides whether a meteorite belongs to this index. null means every meteorite does.
+	private Predicate<Meteorite> present;
+	//False while a lazily registered index has not been requested yet
+	private boolean built = false;
+
+	/**
+	 * Creates an index with the given name and presence predicate.
+	 *
+	 * @param name the name of the index. Should be unique within a collection.
+	 * @param present the predicate that decides which meteorites are stored in the index,
+	 * null if every meteorite should be stored.
+	 * @throws NullPointerException if name is null
+	 */
+	protected MeteoriteIndex(String name, Predicate<Meteorite> present)
+			throws NullPointerException {
+		if (name == null)
+			throw new NullPointerException("The name of an index cannot be null");
+		this.name = name;
+		this.present = present;
+	}
+
+	/**
+	 * Get the name of this index.
+	 *
+	 * @return the name the index is registered with
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Finds out whether the given meteorite belongs to this index according to the presence
+	 * predicate.
+	 *
+	 * @param m the meteorite to check
+	 * @return true if {@code m} should be stored in this index
+	 */
+	public boolean isPresent(Meteorite m) {
+		return present == null || present.test(m);
+	}
+
+	/**
+	 * Finds out whether this index is maintained, meaning it was built eagerly or it was
+	 * already requested once.
+	 *
+	 * @return true if the index holds all present meteorites of its collection
+	 */
+	boolean isBuilt() {
+		return this.built;
+	}
+
+	/**
+	 * Marks this index as maintained. Used by {@link MeteoriteData} once the index was
+	 * filled with all meteorites of the collection.
+	 */
+	void markBuilt() {
+		this.built = true;
+	}
+
+	/**
+	 * Replaces the content of the backing structure with the present meteorites returned by
+	 * the iterator. Subclasses may override this to build the structure in bulk instead of
+	 * inserting the meteorites one by one.
+	 *
+	 * @param itr the meteorites of the collection
+	 */
+	void build(Iterator<Meteorite> itr) {
+		clear();
+		while (itr.hasNext()) {
+			Meteorite m = itr.next();
+			if (isPresent(m))
+				insert(m);
+		}
+	}
+
+	/**
+	 * Adds the meteorite to the backing structure. The meteorite is already known to be
+	 * present according to {@link MeteoriteIndex#isPresent(Meteorite)}.
+	 *
+	 * @param m the meteorite to add
+	 * @return true if the backing structure changed
+	 */
+	abstract boolean insert(Meteorite m);
+
+	/**
+	 * Removes the meteorite from the backing structure. The meteorite is already known to be
+	 * present according to {@link MeteoriteIndex#isPresent(Meteorite)}.
+	 *
+	 * @param m the meteorite to remove
+	 * @return true if the backing structure changed
+	 */
+	abstract boolean delete(Meteorite m);
+
+	/**
+	 * Adds a batch of meteorites to the backing structure, all present according to
+	 * {@link MeteoriteIndex#isPresent(Meteorite)} and not stored yet. Subclasses may override
+	 * this to merge the batch in bulk instead of inserting the meteorites one by one.
+	 *
+	 * @param batch the meteorites to add
+	 */
+	void insertAll(List<Meteorite> batch) {
+		for (Meteorite m : batch)
+			insert(m);
+	}
+
+	/**
+	 * Removes a batch of stored meteorites from the backing structure. Subclasses may
+	 * override this to remove the batch in bulk, see
+	 * {@link MeteoriteIndex#insertAll(List)}.
+	 *
+	 * @param batch the meteorites to remove
+	 */
+	void deleteAll(List<Meteorite> batch) {
+		for (Meteorite m : batch)
+			delete(m);
+	}
+
+	/**
+	 * Removes all meteorites from the backing structure.
+	 */
+	abstract void clear();
+
+	/**
+	 * Returns the number of meteorites stored in this index.
+	 *
+	 * @return the number of meteorites stored in this index
+	 */
+	public abstract int size();
+}
@@ -0,0 +1,565 @@
+package project5;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+
+/**
+ * This class creates Meteorite objects from the lines of the csv file without using
+ * exceptions for invalid values. Every field is checked before it is converted, so a missing
+ * or invalid mass, year or location costs a few comparisons instead of a thrown
+ * IllegalArgumentException with its stack trace, which matters for the thousands of rows of
+ * the data set that leave these fields empty.
+ *
+ * A parser is meant to be reused for all the lines of a file. After each line, {@link
+ * MeteoriteParser#getStatus()} tells which problems the line had, and the parser counts the
+ * problems of all lines by {@link Reject} reason. Optionally, a sample of the rejected lines
+ * is printed to a reject log. A parser is not thread safe; use one per thread.
+ *
+ * A line is rejected as a whole if it has no valid name or id. Otherwise a Meteorite is
+ * created, and each invalid field is only left undefined, exactly like the line parser of
+ * {@link FallenStars} always did.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class MeteoriteParser {
+
+	/**
+	 * The problems a line may have. NO_NAME and BAD_ID reject the whole line, the others
+	 * only leave a field undefined.
+	 */
+	public enum Reject {
+		/** The name is empty. */
+		NO_NAME,
+		/** The id is missing, not a number or not positive. */
+		BAD_ID,
+		/** The mass is empty. */
+		NO_MASS,
+		/** The mass is not a positive decimal number of grams. */
+		BAD_MASS,
+		/** The date is empty. */
+		NO_YEAR,
+		/** The date has no year from 1 to 2019. */
+		BAD_YEAR,
+		/** The location is empty. */
+		NO_LOCATION,
+		/** The location is not a valid "(latitude, longitude)" pair. */
+		BAD_LOCATION,
+		/** The reclat and reclong columns differ from the location, which is used. */
+		LOCATION_MISMATCH;
+
+		/**
+		 * Get the bit of this problem in {@link MeteoriteParser#getStatus()}.
+		 *
+		 * @return the bit of this problem
+		 */
+		public int bit() {
+			return 1 << ordinal();
+		}
+	}
+
+	//Index of the fields of a line
+	private static final int NAME = 0;
+	private static final int ID = 1;
+	private static final int NAMETYPE = 2;
+	private static final int RECCLASS = 3;
+	private static final int MASS = 4;
+	private static final int FALL = 5;
+	private static final int DATE = 6;
+	private static final int RECLAT = 7;
+	private static final int RECLONG = 8;
+	private static final int GEOLOCATION = 9;
+	private static final Reject[] REASONS = Reject.values();
+	/** The epoch day of a line without a valid month and day, see {@link #getEpochDay()}. */
+	public static final int NO_DAY = Meteorite.NO_DATE;
+	//Exact powers of ten: a decimal with at most 15 digits divided by one of them is rounded
+	//	exactly like Double.parseDouble rounds it
+	private static final double[] POWERS = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+			1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+	private static final int EXACT_DIGITS = 15;
+	//The largest mass read, in grams, so that its milligrams fit in a long
+	private static final long MAX_GRAMS = Long.MAX_VALUE / Meteorite.MILLIGRAMS / 10;
+
+	//The problems of the last line, one bit per Reject
+	private int status = 0;
+	//The date of the last line, set by parseDate
+	private int year = -1;
+	private int epochDay = NO_DAY;
+	//The number of lines parsed and of Meteorite objects created
+	private long lines = 0;
+	private long accepted = 0;
+	//The number of lines with each problem
+	private long[] rejects = new long[REASONS.length];
+	//Where a sample of the rejected lines is printed, null if not wanted
+	private PrintStream rejectLog = null;
+	private int sampleEvery = 1;
+	//Shares the Location objects of the Meteorite objects with equal coordinates
+	private LocationPool locations;
+
+	/**
+	 * Creates a parser whose Meteorite objects share their Location objects with each other.
+	 */
+	public MeteoriteParser() {
+		this(new LocationPool());
+	}
+
+	/**
+	 * Creates a parser whose Meteorite objects share their Location objects with the given
+	 * pool, usually the one of the collection they are added to (see
+	 * {@link MeteoriteData#getLocationPool()}).
+	 *
+	 * @param locations the pool of Location objects to share
+	 * @throws NullPointerException if locations is null
+	 */
+	public MeteoriteParser(LocationPool locations) throws NullPointerException {
+		if (locations == null)
+			throw new NullPointerException("Parameter passed in should not be null");
+		this.locations = locations;
+	}
+
+	/**
+	 * Prints the lines with a problem to the given stream: the first line with each problem,
+	 * then one line every {@code sampleEvery} lines with the same problem.
+	 *
+	 * @param log the stream to print to, null to stop printing
+	 * @param sampleEvery how many lines with the same problem are counted per printed line
+	 * @throws IllegalArgumentException if sampleEvery is not positive
+	 */
+	public void setRejectLog(PrintStream log, int sampleEvery) throws IllegalArgumentException {
+		if (sampleEvery <= 0)
+			throw new IllegalArgumentException("The sample rate should be positive.");
+		this.rejectLog = log;
+		this.sampleEvery = sampleEvery;
+	}
+
+	/**
+	 * Creates a Meteorite from a line of the csv file. The name and id are required; the
+	 * mass, year, location and categories are only set if they are valid.
+	 *
+	 * @param textLine a line of text from the csv file
+	 * @return the Meteorite described by the line, or null if the line does not have a valid
+	 * name and id. {@link MeteoriteParser#getStatus()} tells why.
+	 */
+	public Meteorite parse(String textLine) {
+		status = 0;
+		if (textLine == null)
+			return null;
+		lines++;
+		ArrayList<String> parsed = FallenStars.splitCSVLine(textLine);
+
+		//The name and id are required
+		String name = field(parsed, NAME);
+		if (name.isEmpty()) {
+			reject(Reject.NO_NAME, textLine);
+			return null;
+		}
+		String idField = field(parsed, ID);
+		int id = parsePositive(idField, 0, idField.length());
+		if (id <= 0) {
+			reject(Reject.BAD_ID, textLine);
+			return null;
+		}
+		Meteorite toAdd = new Meteorite(name, id);
+		accepted++;
+
+		//Mass is a positive decimal number of grams, like "21" or "256.8"
+		String mass = field(parsed, MASS);
+		if (mass.isEmpty())
+			reject(Reject.NO_MASS, textLine);
+		else {
+			long value = parseMilligrams(mass, 0, mass.length());
+			if (value > 0)
+				toAdd.setMassMilligrams(value);
+			else
+				reject(Reject.BAD_MASS, textLine);
+		}
+
+		//Example of a date: "01/01/1880 12:00:00 AM" or "1/1/1951 0:00"
+		String date = field(parsed, DATE);
+		if (date.isEmpty()) {
+			year = -1;
+			epochDay = NO_DAY;
+			reject(Reject.NO_YEAR, textLine);
+		}
+		else {
+			parseDate(date);
+			if (year > 0 && year < 2020 && epochDay != NO_DAY)
+				toAdd.setEpochDay(epochDay);
+			else if (year > 0 && year < 2020)
+				toAdd.setYear(year);
+			else
+				reject(Reject.BAD_YEAR, textLine);
+		}
+
+		//Example of a location: "(50.775, 6.08333)". The reclat and reclong columns usually
+		//	hold the same numbers without the parentheses.
+		String location = field(parsed, GEOLOCATION);
+		if (location.isEmpty())
+			reject(Reject.NO_LOCATION, textLine);
+		else if (!parseLocation(field(parsed, RECLAT), field(parsed, RECLONG), location, toAdd,
+				textLine))
+			reject(Reject.BAD_LOCATION, textLine);
+
+		//The categories are only left undefined when empty
+		String category = field(parsed, NAMETYPE);
+		if (!category.isEmpty())
+			toAdd.setNametype(category);
+		category = field(parsed, RECCLASS);
+		if (!category.isEmpty())
+			toAdd.setRecclass(category);
+		category = field(parsed, FALL);
+		if (!category.isEmpty())
+			toAdd.setFall(category);
+		return toAdd;
+	}
+
+	/**
+	 * Get the problems of the last parsed line.
+	 *
+	 * @return one {@link Reject#bit()} per problem of the last line, 0 if it had none
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * Get the landing day of the last parsed line, as the number of days since 1970-01-01
+	 * (negative before) in the proleptic Gregorian calendar, like
+	 * {@link java.time.LocalDate#toEpochDay()}.
+	 *
+	 * @return the epoch day of the date of the last line, or {@link #NO_DAY} if the line had
+	 * no date with a valid day, month and year
+	 */
+	public int getEpochDay() {
+		return epochDay;
+	}
+
+	/**
+	 * Get the number of lines that had the given problem.
+	 *
+	 * @param reason the problem
+	 * @return the number of lines with that problem
+	 */
+	public long getRejects(Reject reason) {
+		return rejects[reason.ordinal()];
+	}
+
+	/**
+	 * Get the number of lines parsed.
+	 *
+	 * @return the number of lines parsed
+	 */
+	public long getLines() {
+		return lines;
+	}
+
+	/**
+	 * Get the number of Meteorite objects created.
+	 *
+	 * @return the number of lines with a valid name and id
+	 */
+	public long getAccepted() {
+		return accepted;
+	}
+
+	/**
+	 * Returns the counters as a String like "45716 of 45717 lines accepted, BAD_ID 1, ...".
+	 * Problems no line had are left out.
+	 *
+	 * @return a summary of the counters
+	 */
+	@Override
+	public String toString() {
+		StringBuilder summary = new StringBuilder();
+		summary.append(accepted).append(" of ").append(lines).append(" lines accepted");
+		for (Reject reason : REASONS) {
+			if (rejects[reason.ordinal()] > 0)
+				summary.append(", ").append(reason).append(' ').append(rejects[reason.ordinal()]);
+		}
+		return summary.toString();
+	}
+
+	/**
+	 * Records a problem of the current line and prints the line if it is sampled.
+	 */
+	private void reject(Reject reason, String textLine) {
+		status |= reason.bit();
+		long count = ++rejects[reason.ordinal()];
+		if (rejectLog != null && (count - 1) % sampleEvery == 0)
+			rejectLog.println(reason + " (" + count + "): " + textLine);
+	}
+
+	/**
+	 * Returns the field of the line, or an empty string if the line is too short.
+	 */
+	private static String field(ArrayList<String> parsed, int index) {
+		return index < parsed.size() ? parsed.get(index) : "";
+	}
+
+	/**
+	 * Reads a positive int written in decimal digits with an optional '+' sign from
+	 * text[from, to).
+	 *
+	 * @return the value, or -1 if the text is not a positive int
+	 */
+	private static int parsePositive(String text, int from, int to) {
+		if (from < to && text.charAt(from) == '+')
+			from++;
+		if (from == to)
+			return -1;
+		long value = 0;
+		for (int i = from; i < to; i++) {
+			char c = text.charAt(i);
+			if (!isDigit(c))
+				return -1;
+			value = value * 10 + (c - '0');
+			if (value > Integer.MAX_VALUE)
+				return -1;
+		}
+		return value == 0 ? -1 : (int) value;
+	}
+
+	/**
+	 * Reads a decimal number of grams, like "21", "+256.8" or ".15", from text[from, to) and 
+	 * converts it to milligrams without going through a double. Digits after the third 
+	 * decimal are rounded half up. Used for the mass field and the mass entered by the user.
+	 *
+	 * @param text the text holding the number
+	 * @param from the index of the first character of the number
+	 * @param to the index after the last character of the number
+	 * @return the number of milligrams, or -1 if the text is not a non-negative decimal 
+	 * number or is too large
+	 */
+	static long parseMilligrams(String text, int from, int to) {
+		if (from < to && text.charAt(from) == '+')
+			from++;
+		long grams = 0;
+		int digits = 0;
+		int i = from;
+		for (; i < to && isDigit(text.charAt(i)); i++, digits++) {
+			grams = grams * 10 + (text.charAt(i) - '0');
+			if (grams > MAX_GRAMS)
+				return -1;
+		}
+		long fraction = 0;
+		if (i < to && text.charAt(i) == '.') {
+			i++;
+			//Scale of the next decimal: 100 mg for the first one
+			long scale = Meteorite.MILLIGRAMS / 10;
+			for (; i < to && isDigit(text.charAt(i)); i++, digits++) {
+				int digit = text.charAt(i) - '0';
+				if (scale > 0)
+					fraction += digit * scale;
+				else if (scale == 0 && digit >= 5)
+					fraction++;
+				//Only the first decimal after the milligrams is used for rounding
+				scale = scale > 0 ? scale / 10 : -1;
+			}
+		}
+		if (digits == 0 || i != to)
+			return -1;
+		return grams * Meteorite.MILLIGRAMS + fraction;
+	}
+
+	/**
+	 * Reads a date like "01/01/1880 12:00:00 AM" in place, without splitting it. The year is
+	 * the part between the second and the third '/' of the text before the first space, and
+	 * is set even if the month or day is invalid. The epoch day is only set if the month and
+	 * day are valid too.
+	 */
+	private void parseDate(String date) {
+		year = -1;
+		epochDay = NO_DAY;
+		int end = date.indexOf(' ');
+		if (end < 0)
+			end = date.length();
+		int first = date.indexOf('/');
+		if (first < 0 || first >= end)
+			return;
+		int second = date.indexOf('/', first + 1);
+		if (second < 0 || second >= end)
+			return;
+		int third = date.indexOf('/', second + 1);
+		if (third >= 0 && third < end)
+			end = third;
+		year = parsePositive(date, second + 1, end);
+		int month = parsePositive(date, 0, first);
+		int day = parsePositive(date, first + 1, second);
+		if (year > 0 && month >= 1 && month <= 12 && day >= 1 && day <= daysIn(month, year))
+			epochDay = toEpochDay(year, month, day);
+	}
+
+	/**
+	 * Returns the number of days of the month in the proleptic Gregorian calendar.
+	 */
+	private static int daysIn(int month, int year) {
+		if (month == 2)
+			return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+		return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+	}
+
+	/**
+	 * Returns the number of days from 1970-01-01 to the given valid date. The years are
+	 * counted from March, so that the leap day is the last day of a year, and grouped in
+	 * eras of 400 years of 146097 days each.
+	 */
+	static int toEpochDay(int year, int month, int day) {
+		int y = month <= 2 ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * Reads the location of a line and sets it on the Meteorite. The location column, like
+	 * "(50.775, 6.08333)", is the reference. When it is exactly the reclat and reclong
+	 * columns between parentheses, these columns are read instead, which saves looking for
+	 * the numbers in the location. Otherwise the location is read, and if the reclat and
+	 * reclong columns hold other numbers the line is counted as a LOCATION_MISMATCH.
+	 *
+	 * @return false if the location is not valid
+	 */
+	private boolean parseLocation(String reclat, String reclong, String text, Meteorite m,
+			String textLine) {
+		double latitude;
+		double longitude;
+		if (sameLocation(text, reclat, reclong)) {
+			latitude = parseDecimal(reclat, 0, reclat.length());
+			longitude = parseDecimal(reclong, 0, reclong.length());
+		}
+		else {
+			//Skip the parentheses around the numbers. Parentheses between the numbers are
+			//	ignored too, which needs a copy of the text without them.
+			int from = 0;
+			int to = text.length();
+			while (from < to && (text.charAt(from) == '(' || text.charAt(from) <= ' '))
+				from++;
+			while (to > from && (text.charAt(to - 1) == ')' || text.charAt(to - 1) <= ' '))
+				to--;
+			int open = text.indexOf('(', from);
+			int close = text.indexOf(')', from);
+			if ((open >= 0 && open < to) || (close >= 0 && close < to)) {
+				text = text.substring(from, to).replace("(", "").replace(")", "");
+				from = 0;
+				to = text.length();
+			}
+			int comma = text.indexOf(',', from);
+			if (comma < 0 || comma >= to)
+				return false;
+			int end = text.indexOf(',', comma + 1);
+			if (end < 0 || end > to)
+				end = to;
+			latitude = parseDecimal(text, from, comma);
+			longitude = parseDecimal(text, comma + 1, end);
+			if (!reclat.isEmpty() && !reclong.isEmpty() && (latitude 
+					!= parseDecimal(reclat, 0, reclat.length()) 
+					|| longitude != parseDecimal(reclong, 0, reclong.length())))
+				reject(Reject.LOCATION_MISMATCH, textLine);
+		}
+		//NaN, the value of invalid numbers, fails every comparison
+		if (!(latitude >= -90.0 && latitude <= 90.0 && longitude >= -180.0 
+				&& longitude <= 180.0))
+			return false;
+		//Many meteorites share their coordinates, so they share the Location object too
+		m.setLocation(locations.intern(latitude, longitude));
+		return true;
+	}
+
+	/**
+	 * Finds out whether the location is the text "(" + reclat + ", " + reclong + ")".
+	 */
+	private static boolean sameLocation(String text, String reclat, String reclong) {
+		int latitude = reclat.length();
+		int longitude = reclong.length();
+		return latitude > 0 && longitude > 0 && text.length() == latitude + longitude + 4
+				&& text.charAt(0) == '(' && text.regionMatches(1, reclat, 0, latitude)
+				&& text.charAt(latitude + 1) == ',' && text.charAt(latitude + 2) == ' '
+				&& text.regionMatches(latitude + 3, reclong, 0, longitude)
+				&& text.charAt(text.length() - 1) == ')';
+	}
+
+	/**
+	 * Reads the decimal number in text[from, to), with the same result as {@link
+	 * Double#parseDouble(String)}. Numbers like "-71.5" or "160.40667" are read in place:
+	 * their digits form an exact long, which is divided by an exact power of ten. Only
+	 * numbers with an exponent or more than 15 digits are left to Double.parseDouble.
+	 *
+	 * @return the number, or NaN if the text is not a decimal number
+	 */
+	static double parseDecimal(String text, int from, int to) {
+		while (from < to && text.charAt(from) <= ' ')
+			from++;
+		while (to > from && text.charAt(to - 1) <= ' ')
+			to--;
+		int i = from;
+		boolean negative = false;
+		if (i < to && (text.charAt(i) == '+' || text.charAt(i) == '-'))
+			negative = text.charAt(i++) == '-';
+		long digits = 0;
+		int count = 0;
+		int decimals = 0;
+		for (; i < to && isDigit(text.charAt(i)); i++, count++)
+			digits = digits * 10 + (text.charAt(i) - '0');
+		if (i < to && text.charAt(i) == '.') {
+			i++;
+			for (; i < to && isDigit(text.charAt(i)); i++, count++, decimals++)
+				digits = digits * 10 + (text.charAt(i) - '0');
+		}
+		if (i == to && count > 0 && count <= EXACT_DIGITS) {
+			double value = digits / POWERS[decimals];
+			return negative ? -value : value;
+		}
+		//Rare numbers: let the library read them
+		if (!isDecimal(text, from, to))
+			return Double.NaN;
+		return Double.parseDouble(text.substring(from, to));
+	}
+
+	/**
+	 * Finds out whether text[from, to) is a decimal number that {@link
+	 * Double#parseDouble(String)} accepts: optional spaces and sign, digits with an optional
+	 * fraction, and an optional exponent.
+	 */
+	private static boolean isDecimal(String text, int from, int to) {
+		while (from < to && text.charAt(from) <= ' ')
+			from++;
+		while (to > from && text.charAt(to - 1) <= ' ')
+			to--;
+		int i = from;
+		if (i < to && (text.charAt(i) == '+' || text.charAt(i) == '-'))
+			i++;
+		int digits = 0;
+		while (i < to && isDigit(text.charAt(i))) {
+			i++;
+			digits++;
+		}
+		if (i < to && text.charAt(i) == '.') {
+			i++;
+			while (i < to && isDigit(text.charAt(i))) {
+				i++;
+				digits++;
+			}
+		}
+		if (digits == 0)
+			return false;
+		if (i < to && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+			i++;
+			if (i < to && (text.charAt(i) == '+' || text.charAt(i) == '-'))
+				i++;
+			int exponent = 0;
+			while (i < to && isDigit(text.charAt(i))) {
+				i++;
+				exponent++;
+			}
+			if (exponent == 0)
+				return false;
+		}
+		return i == to;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
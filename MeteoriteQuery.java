@@ -0,0 +1,225 @@
+package project5;
+
+/**
+ * This class describes a compound query over a {@link MeteoriteData} collection. A query may
+ * restrict the mass, the landing year and the distance from a {@link Location}; a Meteorite
+ * matches the query if it satisfies every restriction that was set. A Meteorite that does not
+ * define a restricted value (for example no mass when the mass is restricted) does not match.
+ *
+ * Example: falls between 1900 and 1950, 1 to 5 kg, within 500 km of loc:
+ * <pre>
+ * new MeteoriteQuery().year(1900, 1950).mass(1000, 5000).near(loc, 500)
+ * </pre>
+ * Falls of class L6:
+ * <pre>
+ * new MeteoriteQuery().recclass("L6").fall("Fell")
+ * </pre>
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class MeteoriteQuery {
+	//Codes of unrestricted categories and of values no Meteorite has
+	private static final int ANY = -2;
+	private static final int NONE = -3;
+
+	//Mass range in milligrams, inclusive. massLow == -1 if mass is not restricted.
+	private long massLow = -1;
+	private long massHigh = -1;
+	//Year range, inclusive. yearLow == 0 if year is not restricted.
+	private int yearLow = 0;
+	private int yearHigh = 0;
+	//Center and radius of the location restriction. center == null if not restricted.
+	private Location center = null;
+	private double radius = 0;
+	//The radius as a squared chord length, see Location#chordSquared(Location)
+	private double chordLimit = 0;
+	//The dictionary code required for every category attribute (see Meteorite#NAMETYPE),
+	//	ANY if not restricted, NONE if the value is not in the dictionary
+	private int[] categories = {ANY, ANY, ANY};
+
+	/**
+	 * Restricts the query to meteorites with mass from low to high grams inclusive.
+	 *
+	 * @param low the lowest mass in grams
+	 * @param high the highest mass in grams
+	 * @return this query
+	 * @throws IllegalArgumentException if low is not positive or high is less than low
+	 */
+	public MeteoriteQuery mass(int low, int high) throws IllegalArgumentException {
+		if (low <= 0 || high < low)
+			throw new IllegalArgumentException("A valid mass range has a positive lower "
+					+ "endpoint not greater than the higher endpoint.");
+		return massMilligrams(low * Meteorite.MILLIGRAMS, high * Meteorite.MILLIGRAMS);
+	}
+
+	/**
+	 * Restricts the query to meteorites with mass from low to high milligrams inclusive.
+	 *
+	 * @param low the lowest mass in milligrams
+	 * @param high the highest mass in milligrams
+	 * @return this query
+	 * @throws IllegalArgumentException if low is not positive or high is less than low
+	 */
+	public MeteoriteQuery massMilligrams(long low, long high) throws IllegalArgumentException {
+		if (low <= 0 || high < low)
+			throw new IllegalArgumentException("A valid mass range has a positive lower "
+					+ "endpoint not greater than the higher endpoint.");
+		this.massLow = low;
+		this.massHigh = high;
+		return this;
+	}
+
+	/**
+	 * Restricts the query to meteorites that landed from year low to year high inclusive.
+	 *
+	 * @param low the earliest year
+	 * @param high the latest year
+	 * @return this query
+	 * @throws IllegalArgumentException if low is not positive or high is less than low
+	 */
+	public MeteoriteQuery year(int low, int high) throws IllegalArgumentException {
+		if (low <= 0 || high < low)
+			throw new IllegalArgumentException("A valid year range has a positive lower "
+					+ "endpoint not greater than the higher endpoint.");
+		this.yearLow = low;
+		this.yearHigh = high;
+		return this;
+	}
+
+	/**
+	 * Restricts the query to meteorites that landed within {@code km} kilometres of
+	 * {@code loc}.
+	 *
+	 * @param loc the location to search around
+	 * @param km the search radius in kilometres
+	 * @return this query
+	 * @throws IllegalArgumentException if loc is null or km is negative
+	 */
+	public MeteoriteQuery near(Location loc, double km) throws IllegalArgumentException {
+		if (loc == null || !(km >= 0))
+			throw new IllegalArgumentException("A valid location restriction has a location "
+					+ "and a non-negative radius.");
+		this.center = loc;
+		this.radius = km;
+		this.chordLimit = Location.toChordSquared(km);
+		return this;
+	}
+
+	/**
+	 * Restricts the query to meteorites with the given name type ("Valid" or "Relict").
+	 *
+	 * @param nametype the name type, see {@link CategoryDictionary#lookup(String)}
+	 * @return this query
+	 * @throws IllegalArgumentException if nametype is null or empty
+	 */
+	public MeteoriteQuery nametype(String nametype) throws IllegalArgumentException {
+		return category(Meteorite.NAMETYPE, nametype);
+	}
+
+	/**
+	 * Restricts the query to meteorites of the given class, for example "L6".
+	 *
+	 * @param recclass the class, see {@link CategoryDictionary#lookup(String)}
+	 * @return this query
+	 * @throws IllegalArgumentException if recclass is null or empty
+	 */
+	public MeteoriteQuery recclass(String recclass) throws IllegalArgumentException {
+		return category(Meteorite.RECCLASS, recclass);
+	}
+
+	/**
+	 * Restricts the query to meteorites that were seen falling ("Fell") or found later
+	 * ("Found").
+	 *
+	 * @param fall the fall, see {@link CategoryDictionary#lookup(String)}
+	 * @return this query
+	 * @throws IllegalArgumentException if fall is null or empty
+	 */
+	public MeteoriteQuery fall(String fall) throws IllegalArgumentException {
+		return category(Meteorite.FALL, fall);
+	}
+
+	/**
+	 * Restricts a category attribute to the code of the value. The code is looked up when
+	 * the restriction is set, so a value that is not in the dictionary yet matches nothing.
+	 */
+	private MeteoriteQuery category(int attribute, String value) throws IllegalArgumentException {
+		if (value == null || value.isEmpty())
+			throw new IllegalArgumentException("A valid category is a non-empty string.");
+		int code = Meteorite.getDictionary(attribute).lookup(value);
+		categories[attribute] = code == -1 ? NONE : code;
+		return this;
+	}
+
+	/**
+	 * Finds out whether the given meteorite satisfies every restriction of this query.
+	 *
+	 * @param m the meteorite to test
+	 * @return true if {@code m} matches this query
+	 */
+	public boolean matches(Meteorite m) {
+		if (hasMass() && (m.getMassMilligrams() < massLow || m.getMassMilligrams() > massHigh))
+			return false;
+		if (hasYear() && (m.getYear() < yearLow || m.getYear() > yearHigh))
+			return false;
+		if (hasLocation()) {
+			Location loc = m.getLocation();
+			if (loc == null || center.chordSquared(loc) > chordLimit)
+				return false;
+		}
+		for (int a = 0; a < Meteorite.CATEGORIES; a++) {
+			if (categories[a] != ANY && m.getCategoryCode(a) != categories[a])
+				return false;
+		}
+		return true;
+	}
+
+	boolean hasMass() {
+		return massLow != -1;
+	}
+
+	boolean hasYear() {
+		return yearLow != 0;
+	}
+
+	boolean hasLocation() {
+		return center != null;
+	}
+
+	boolean hasCategory(int attribute) {
+		return categories[attribute] != ANY;
+	}
+
+	long getMassLow() {
+		return massLow;
+	}
+
+	long getMassHigh() {
+		return massHigh;
+	}
+
+	int getYearLow() {
+		return yearLow;
+	}
+
+	int getYearHigh() {
+		return yearHigh;
+	}
+
+	Location getCenter() {
+		return center;
+	}
+
+	double getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Returns the code required for the category attribute, negative if no Meteorite can
+	 * match it. Only meaningful if {@link MeteoriteQuery#hasCategory(int)} is true.
+	 */
+	int getCategory(int attribute) {
+		return categories[attribute];
+	}
+}
@@ -0,0 +1,271 @@
+package project5;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class counts what the hot paths of the program do: the comparisons of the tree
+ * operations, the latency of the queries of {@link MeteoriteData} and the phases of loading
+ * the csv file. The counters are {@link LongAdder} objects, which threads update without
+ * contention, and the distributions are kept in {@link Histogram} objects with one bucket
+ * per power of two.
+ *
+ * Counting is off unless the program is started with -Dproject5.metrics=true. The switch
+ * is the static final field {@link Metrics#ENABLED}, and every instrumented place tests it
+ * first, so when it is false the JIT compiler removes the instrumentation altogether.
+ *
+ * An instance is registered as a JMX MBean by {@link Metrics#register(MeteoriteData)}; it
+ * also reports the shape of the trees of that collection.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class Metrics implements MetricsMBean {
+	/** true if the program counts, set with -Dproject5.metrics=true. */
+	public static final boolean ENABLED = Boolean.getBoolean("project5.metrics");
+	/** The name the MBean is registered with. */
+	public static final String OBJECT_NAME = "project5:type=Metrics";
+
+	/** The comparisons of every call to {@link BST#add(Comparable)}. */
+	static final Histogram BST_ADD = new Histogram();
+	/** The comparisons of every range walk of a tree. */
+	static final Histogram BST_RANGE = new Histogram();
+	/** The latency in nanoseconds of every mass query. */
+	static final Histogram MASS_QUERY = new Histogram();
+	/** The latency in nanoseconds of every year query. */
+	static final Histogram YEAR_QUERY = new Histogram();
+	/** The latency in nanoseconds of every nearest location query. */
+	static final Histogram LOCATION_QUERY = new Histogram();
+	/** The valid rows read from the csv file, without its header. */
+	static final LongAdder LOAD_ROWS = new LongAdder();
+	/** The rows of the csv file rejected for not having a valid name and id. */
+	static final LongAdder LOAD_REJECTS = new LongAdder();
+	/** The nanoseconds spent reading and parsing the rows of the csv file. */
+	static final LongAdder LOAD_PARSE_NANOS = new LongAdder();
+	/** The nanoseconds spent adding the parsed rows to the collection and its indexes. */
+	static final LongAdder LOAD_INSERT_NANOS = new LongAdder();
+
+	private static final String[] KINDS = {"mass", "year", "location"};
+	private static final Histogram[] QUERIES = {MASS_QUERY, YEAR_QUERY, LOCATION_QUERY};
+
+	//The collection whose trees are reported
+	private MeteoriteData data;
+
+	/**
+	 * Creates the metrics of the given collection.
+	 *
+	 * @param data the collection whose trees are reported, null to report none
+	 */
+	public Metrics(MeteoriteData data) {
+		this.data = data;
+	}
+
+	/**
+	 * Creates the metrics of the given collection and registers them in the platform MBean
+	 * server under {@link Metrics#OBJECT_NAME}.
+	 *
+	 * @param data the collection whose trees are reported
+	 * @return the registered metrics
+	 * @throws JMException if the MBean cannot be registered, for example because metrics
+	 * are already registered
+	 */
+	public static Metrics register(MeteoriteData data) throws JMException {
+		Metrics metrics = new Metrics(data);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+				new ObjectName(OBJECT_NAME));
+		return metrics;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return ENABLED;
+	}
+
+	@Override
+	public long getBstAdds() {
+		return BST_ADD.getCount();
+	}
+
+	@Override
+	public double getComparisonsPerAdd() {
+		return BST_ADD.getMean();
+	}
+
+	@Override
+	public long getBstRanges() {
+		return BST_RANGE.getCount();
+	}
+
+	@Override
+	public double getComparisonsPerRange() {
+		return BST_RANGE.getMean();
+	}
+
+	@Override
+	public long getRowsLoaded() {
+		return LOAD_ROWS.sum();
+	}
+
+	@Override
+	public long getRowsRejected() {
+		return LOAD_REJECTS.sum();
+	}
+
+	@Override
+	public double getRowsPerSecond() {
+		long nanos = LOAD_PARSE_NANOS.sum() + LOAD_INSERT_NANOS.sum();
+		return nanos == 0 ? 0 : LOAD_ROWS.sum() * 1e9 / nanos;
+	}
+
+	@Override
+	public long queryCount(String kind) {
+		Histogram query = query(kind);
+		return query == null ? 0 : query.getCount();
+	}
+
+	@Override
+	public double queryMeanMicros(String kind) {
+		Histogram query = query(kind);
+		return query == null ? 0 : query.getMean() / 1000;
+	}
+
+	@Override
+	public double queryPercentileMicros(String kind, double percentile) {
+		Histogram query = query(kind);
+		return query == null ? 0 : query.getPercentile(percentile) / 1000.0;
+	}
+
+	@Override
+	public String getReport() {
+		return report();
+	}
+
+	@Override
+	public void reset() {
+		BST_ADD.reset();
+		BST_RANGE.reset();
+		for (Histogram query : QUERIES)
+			query.reset();
+		LOAD_ROWS.reset();
+		LOAD_REJECTS.reset();
+		LOAD_PARSE_NANOS.reset();
+		LOAD_INSERT_NANOS.reset();
+	}
+
+	/**
+	 * Returns the counters as text, one line per counter, like
+	 * "mass query: 12 calls, mean 85.2 us, p50 &lt;= 65.5 us, p99 &lt;= 262.1 us". The shape
+	 * of every built tree of the collection is computed on the spot, which takes O(N).
+	 *
+	 * @return the counters, the latencies and the shape of the trees
+	 */
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		if (!ENABLED)
+			report.append("Metrics are disabled. Start the program with "
+					+ "-Dproject5.metrics=true to count.\n");
+		report.append(String.format("bst add: %d calls, %.1f comparisons per call, "
+				+ "p99 <= %d%n", BST_ADD.getCount(), BST_ADD.getMean(),
+				BST_ADD.getPercentile(99)));
+		report.append(String.format("bst range: %d calls, %.1f comparisons per call, "
+				+ "p99 <= %d%n", BST_RANGE.getCount(), BST_RANGE.getMean(),
+				BST_RANGE.getPercentile(99)));
+		for (int k = 0; k < KINDS.length; k++) {
+			Histogram query = QUERIES[k];
+			report.append(String.format("%s query: %d calls, mean %.1f us, p50 <= %.1f us, "
+					+ "p99 <= %.1f us%n", KINDS[k], query.getCount(), query.getMean() / 1000,
+					query.getPercentile(50) / 1000.0, query.getPercentile(99) / 1000.0));
+		}
+		report.append(String.format("load: %d rows, %d rejected, parse %d ms, insert %d ms, "
+				+ "%.0f rows/s%n", LOAD_ROWS.sum(), LOAD_REJECTS.sum(),
+				LOAD_PARSE_NANOS.sum() / 1000000, LOAD_INSERT_NANOS.sum() / 1000000,
+				getRowsPerSecond()));
+		if (data != null) {
+			//The trees should not change while they are measured
+			synchronized (data) {
+				report.append("locations: ").append(data.getLocationPool()).append('\n');
+				for (Map.Entry<String, BST<Meteorite>> tree : data.getTrees().entrySet())
+					report.append(tree.getKey()).append(" tree: ")
+							.append(tree.getValue().shapeStats()).append('\n');
+			}
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Returns the latencies of the given kind of query, null if the kind is unknown.
+	 */
+	private static Histogram query(String kind) {
+		for (int k = 0; k < KINDS.length; k++) {
+			if (KINDS[k].equals(kind))
+				return QUERIES[k];
+		}
+		return null;
+	}
+
+	/**
+	 * A distribution of non-negative values, like comparisons or nanoseconds, kept as the
+	 * number of values in each power of two: bucket 0 counts the value 0 and bucket b the
+	 * values from 2^(b-1) to 2^b - 1. Recording a value is a few additions to
+	 * {@link LongAdder} objects, so threads can record at the same time.
+	 */
+	static class Histogram {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder sum = new LongAdder();
+		private final LongAdder[] buckets = new LongAdder[64];
+
+		Histogram() {
+			for (int b = 0; b < buckets.length; b++)
+				buckets[b] = new LongAdder();
+		}
+
+		/**
+		 * Adds a value to the distribution. Negative values are counted as 0.
+		 */
+		void record(long value) {
+			if (value < 0)
+				value = 0;
+			count.increment();
+			sum.add(value);
+			buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+		}
+
+		long getCount() {
+			return count.sum();
+		}
+
+		double getMean() {
+			long n = count.sum();
+			return n == 0 ? 0 : (double) sum.sum() / n;
+		}
+
+		/**
+		 * Returns an upper bound of the given percentile: the largest value of the bucket
+		 * holding it, so at most twice the real value.
+		 */
+		long getPercentile(double percentile) {
+			long n = count.sum();
+			if (n == 0)
+				return 0;
+			long rank = (long) Math.ceil(n * Math.min(100, Math.max(0, percentile)) / 100);
+			long seen = 0;
+			for (int b = 0; b < buckets.length; b++) {
+				seen += buckets[b].sum();
+				if (seen >= rank)
+					return b == 0 ? 0 : (1L << b) - 1;
+			}
+			return Long.MAX_VALUE;
+		}
+
+		void reset() {
+			count.reset();
+			sum.reset();
+			for (LongAdder bucket : buckets)
+				bucket.reset();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package project5;
+
+/**
+ * The management interface of {@link Metrics}, through which JMX clients like JConsole read
+ * the counters of the program. The query kinds are "mass", "year" and "location".
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public interface MetricsMBean {
+	/**
+	 * @return true if the program was started with -Dproject5.metrics=true, false if
+	 * nothing is counted
+	 */
+	boolean isEnabled();
+
+	/**
+	 * @return the number of calls to {@link BST#add(Comparable)}
+	 */
+	long getBstAdds();
+
+	/**
+	 * @return the average number of comparisons of a call to {@link BST#add(Comparable)}
+	 */
+	double getComparisonsPerAdd();
+
+	/**
+	 * @return the number of range walks of the trees (getRange and getRangeBST)
+	 */
+	long getBstRanges();
+
+	/**
+	 * @return the average number of comparisons of a range walk
+	 */
+	double getComparisonsPerRange();
+
+	/**
+	 * @return the number of valid rows read from the csv file
+	 */
+	long getRowsLoaded();
+
+	/**
+	 * @return the number of rows of the csv file without a valid name and id
+	 */
+	long getRowsRejected();
+
+	/**
+	 * @return the number of valid rows parsed and added per second while loading the csv
+	 * file
+	 */
+	double getRowsPerSecond();
+
+	/**
+	 * @param kind the kind of query
+	 * @return the number of queries of that kind, 0 for an unknown kind
+	 */
+	long queryCount(String kind);
+
+	/**
+	 * @param kind the kind of query
+	 * @return the average latency of the queries of that kind in microseconds
+	 */
+	double queryMeanMicros(String kind);
+
+	/**
+	 * @param kind the kind of query
+	 * @param percentile the percentile, from 0 to 100
+	 * @return an upper bound of the latency of that percentile in microseconds
+	 */
+	double queryPercentileMicros(String kind, double percentile);
+
+	/**
+	 * @return the counters, the latencies and the shape of the trees as text, see
+	 * {@link Metrics#report()}
+	 */
+	String getReport();
+
+	/**
+	 * Sets every counter back to 0.
+	 */
+	void reset();
+}
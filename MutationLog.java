@@ -0,0 +1,678 @@
+package project5;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.zip.CRC32;
+
+/**
+ * This class keeps an append-only, checksummed binary log of the Meteorite objects added to
+ * and removed from a {@link MeteoriteData} collection (see
+ * {@link MeteoriteData#setMutationLog(MutationLog)}), so that the collection can be recovered
+ * after a restart without reading the csv file again.
+ *
+ * The log lives in a directory with two files: a base snapshot of the whole collection, and
+ * the log of the mutations made after that snapshot. Mutations are grouped in memory and
+ * written with a single {@link FileChannel#force(boolean)} once {@code groupSize} mutations
+ * are waiting or {@code maxDelayMillis} milliseconds have passed (group commit), so at most
+ * one group of mutations can be lost in a crash. A group that cannot be written is reported
+ * on the standard error and stays in memory, to be written again at the same place with the
+ * next group, so the log never falls behind the mutations the collection made. Once the
+ * log holds
+ * {@code compactThreshold} mutations, the collection is written as a new snapshot and the log
+ * is emptied.
+ *
+ * Recovery reads the snapshot, then sorts the logged mutations by Meteorite and keeps only the
+ * last mutation of each Meteorite, merges the two sorted sequences and builds the collection
+ * in bulk. A record with a bad checksum, which is what a crash in the middle of a write
+ * leaves behind, ends the log.
+ *
+ * A Meteorite is written as its name, id, mass, year, landing day, location and categories.
+ * Format of the log: a header (int magic, byte version) followed by records
+ * [int length][byte operation][Meteorite][int CRC32 of operation and Meteorite], or
+ * [int length][byte operation][long source offset][int CRC32 of operation and offset].
+ * Format of the snapshot: a header (int magic, byte version, int count, long source offset)
+ * followed by records [int length][Meteorite][int CRC32 of Meteorite]. The source offset is
+ * the number of bytes of the csv file that were loaded into the collection, so that rows
+ * appended to the file later can be read after a recovery. A changed offset is logged
+ * before the next mutation, so a row loaded and then removed is not read again.
+ *
+ * The files of another version cannot be read, so they are dropped when the log is opened
+ * (see {@link MutationLog#getStaleVersion()}) and the collection has to be loaded again.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class MutationLog implements Closeable {
+	/** Operation of a logged {@link MeteoriteData#add(Meteorite)}. */
+	public static final byte ADD = 1;
+	/** Operation of a logged {@link MeteoriteData#remove(Meteorite)}. */
+	public static final byte REMOVE = 2;
+
+	private static final int LOG_MAGIC = 0x4D4C4F47;       //"MLOG"
+	private static final int SNAPSHOT_MAGIC = 0x4D534E50;  //"MSNP"
+	//Version 2 added the categories of the Meteorite, version 3 writes the mass in
+	//	milligrams as a long, version 4 added the landing day, version 5 the source offset
+	//	of the snapshot, version 6 logs the source offset
+	private static final byte VERSION = 6;
+	//Operation of a logged source offset
+	private static final byte OFFSET = 3;
+	//Written for an undefined category
+	private static final byte[] NO_CATEGORY = new byte[0];
+	private static final int LOG_HEADER = 5;
+	private static final String LOG_FILE = "mutations.log";
+	private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+	private Path dir;
+	private FileChannel channel;
+	private int groupSize;
+	private long maxDelayMillis;
+	private int compactThreshold;
+	//The number of logged mutations at which the next snapshot is written
+	private int compactAt;
+	//The version of the files dropped when the log was opened, 0 if none were dropped
+	private byte staleVersion = 0;
+
+	//The mutations waiting to be written
+	private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+	private int pendingCount = 0;
+	//The number of mutations in the log file since the last snapshot
+	private int logged = 0;
+	//The number of bytes of the csv file loaded into the collection, see getSourceOffset()
+	private long sourceOffset = 0;
+	//Whether sourceOffset changed since it was logged or written with a snapshot
+	private boolean offsetPending = false;
+	//The end of the intact records of the log file, where the next group is written
+	private long end = 0;
+	//Whether the last write failed, so that a series of failures is reported once
+	private boolean failing = false;
+	private CRC32 crc = new CRC32();
+	private Thread flusher;
+	private boolean closed = false;
+
+	/**
+	 * Opens (or creates) the log kept in the given directory. Anything after the last intact
+	 * record of the log, which is what a crash in the middle of a write leaves behind, is cut
+	 * off so that new records follow the intact ones.
+	 *
+	 * @param dir the directory of the log and of the snapshot
+	 * @param groupSize the number of mutations written together
+	 * @param maxDelayMillis the longest time a mutation waits to be written, 0 to wait for
+	 * a full group or an explicit {@link MutationLog#sync()}
+	 * @param compactThreshold the number of logged mutations that triggers a new snapshot
+	 * @throws IOException if the directory or the log cannot be opened, or the log is not a
+	 * mutation log. The log and snapshot of another version are dropped instead.
+	 * @throws IllegalArgumentException if a size is not positive or the delay is negative
+	 */
+	public MutationLog(Path dir, int groupSize, long maxDelayMillis, int compactThreshold)
+			throws IOException, IllegalArgumentException {
+		if (groupSize <= 0 || compactThreshold <= 0 || maxDelayMillis < 0)
+			throw new IllegalArgumentException("The group size and the compaction threshold "
+					+ "should be positive, and the delay cannot be negative.");
+		this.dir = dir;
+		this.groupSize = groupSize;
+		this.maxDelayMillis = maxDelayMillis;
+		this.compactThreshold = compactThreshold;
+		this.compactAt = compactThreshold;
+
+		Files.createDirectories(dir);
+		//The log and the snapshot are written together, so both are dropped if one of them 
+		//	has another version
+		byte logVersion = version(dir.resolve(LOG_FILE), LOG_MAGIC);
+		byte snapshotVersion = version(dir.resolve(SNAPSHOT_FILE), SNAPSHOT_MAGIC);
+		if (logVersion != VERSION || snapshotVersion != VERSION) {
+			staleVersion = logVersion != VERSION ? logVersion : snapshotVersion;
+			Files.deleteIfExists(dir.resolve(SNAPSHOT_FILE));
+			Files.deleteIfExists(dir.resolve(LOG_FILE));
+		}
+		channel = FileChannel.open(dir.resolve(LOG_FILE), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		if (channel.size() == 0)
+			writeLogHeader();
+		else {
+			//Find the end of the last intact record and drop the rest
+			end = LOG_HEADER;
+			try (DataInputStream in = open(Files.newInputStream(dir.resolve(LOG_FILE)),
+					LOG_MAGIC)) {
+				byte[] body;
+				while ((body = readRecord(in)) != null) {
+					end += body.length + 8;
+					logged++;
+				}
+			}
+			channel.truncate(end);
+		}
+
+		if (maxDelayMillis > 0) {
+			flusher = new Thread(this::flushPeriodically, "mutation-log-flusher");
+			flusher.setDaemon(true);
+			flusher.start();
+		}
+	}
+
+	/**
+	 * Get the version of the log and snapshot that were found in the directory when this 
+	 * log was opened, if it is not the version this class writes. Those files cannot be 
+	 * read, so they were dropped, and the collection has to be loaded from its source again.
+	 *
+	 * @return the version of the dropped files, 0 if no files were dropped
+	 */
+	public byte getStaleVersion() {
+		return staleVersion;
+	}
+
+	/**
+	 * Finds out whether a snapshot was written in the directory of this log.
+	 *
+	 * @return true if there is a snapshot to recover from
+	 */
+	public boolean hasSnapshot() {
+		return Files.exists(dir.resolve(SNAPSHOT_FILE));
+	}
+
+	/**
+	 * Replaces the content of the given collection with the snapshot and the logged
+	 * mutations, and reads the last source offset. The log should not be attached to the 
+	 * collection yet, otherwise the recovery would be logged again.
+	 *
+	 * @param data the collection to recover into
+	 * @return the number of meteorites in the recovered collection
+	 * @throws IOException if the snapshot or the log cannot be read
+	 */
+	public synchronized int recover(MeteoriteData data) throws IOException {
+		LocationPool locations = data.getLocationPool();
+		//The snapshot is written from the natural ordering, so it is sorted already
+		ArrayList<Meteorite> base = new ArrayList<>();
+		if (hasSnapshot()) {
+			try (DataInputStream in = open(Files.newInputStream(dir.resolve(SNAPSHOT_FILE)),
+					SNAPSHOT_MAGIC)) {
+				int count = in.readInt();
+				sourceOffset = in.readLong();
+				base.ensureCapacity(count);
+				for (int i = 0; i < count; i++) {
+					byte[] body = readRecord(in);
+					if (body == null)
+						throw new IOException("The snapshot is corrupted at record " + i);
+					base.add(decode(ByteBuffer.wrap(body), locations));
+				}
+			}
+		}
+
+		//Read the mutations and remember their order
+		ArrayList<Mutation> log = new ArrayList<>();
+		try (DataInputStream in = open(Files.newInputStream(dir.resolve(LOG_FILE)),
+				LOG_MAGIC)) {
+			byte[] body;
+			while ((body = readRecord(in)) != null) {
+				ByteBuffer buffer = ByteBuffer.wrap(body);
+				byte op = buffer.get();
+				if (op == OFFSET)
+					sourceOffset = buffer.getLong();
+				else
+					log.add(new Mutation(op, decode(buffer, locations), log.size()));
+			}
+		}
+		offsetPending = false;
+		//Sort by Meteorite, then by order, and keep the last mutation of each Meteorite
+		log.sort((a, b) -> {
+			int relation = a.meteorite.compareTo(b.meteorite);
+			return relation != 0 ? relation : Integer.compare(a.order, b.order);
+		});
+		int kept = 0;
+		for (int i = 0; i < log.size(); i++) {
+			if (kept > 0 && log.get(kept - 1).meteorite.compareTo(log.get(i).meteorite) == 0)
+				kept--;
+			log.set(kept++, log.get(i));
+		}
+
+		//Merge the snapshot with the last mutations
+		ArrayList<Meteorite> merged = new ArrayList<>(base.size() + kept);
+		int i = 0;
+		int j = 0;
+		while (i < base.size() || j < kept) {
+			int relation;
+			if (j == kept)
+				relation = -1;
+			else if (i == base.size())
+				relation = 1;
+			else
+				relation = base.get(i).compareTo(log.get(j).meteorite);
+			if (relation < 0)
+				merged.add(base.get(i++));
+			else {
+				//The mutation replaces or removes the Meteorite of the snapshot
+				Mutation m = log.get(j++);
+				if (m.op == ADD)
+					merged.add(m.meteorite);
+				if (relation == 0)
+					i++;
+			}
+		}
+		data.loadSorted(merged);
+		return merged.size();
+	}
+
+	/**
+	 * Logs a mutation of the collection. The mutation is written with its group. If the 
+	 * group cannot be written, the failure is reported and the group is written again later, 
+	 * since the collection already made the mutation.
+	 *
+	 * @param op {@link MutationLog#ADD} or {@link MutationLog#REMOVE}
+	 * @param m the Meteorite added or removed
+	 * @throws IllegalStateException if the log is closed
+	 */
+	public synchronized void append(byte op, Meteorite m) throws IllegalStateException {
+		if (closed)
+			throw new IllegalStateException("The mutation log is closed.");
+		if (offsetPending)
+			appendOffset();
+		byte[] name = m.getName().getBytes(StandardCharsets.UTF_8);
+		int length = 1 + size(m, name);
+		ensurePending(length + 8);
+		pending.putInt(length);
+		int start = pending.position();
+		pending.put(op);
+		encode(pending, m, name);
+		crc.reset();
+		crc.update(pending.array(), start, length);
+		pending.putInt((int) crc.getValue());
+		pendingCount++;
+		logged++;
+		if (pendingCount >= groupSize)
+			trySync();
+	}
+
+	/**
+	 * Writes the waiting mutations and forces them to the disk. If they cannot be written, 
+	 * they keep waiting and are written again at the same place by the next call.
+	 *
+	 * @throws IOException if the log cannot be written
+	 */
+	public synchronized void sync() throws IOException {
+		if (offsetPending)
+			appendOffset();
+		if (pendingCount == 0)
+			return;
+		//The waiting mutations are only dropped once they are on the disk
+		ByteBuffer group = pending.duplicate();
+		group.flip();
+		long position = end;
+		while (group.hasRemaining())
+			position += channel.write(group, position);
+		channel.force(false);
+		end = position;
+		pending.clear();
+		pendingCount = 0;
+		failing = false;
+	}
+
+	/**
+	 * Writes the waiting mutations, and reports a failure on the standard error instead of 
+	 * throwing it, since the mutations were already made.
+	 */
+	private void trySync() {
+		try {
+			sync();
+		}
+		catch (IOException ex) {
+			if (!failing)
+				System.err.println("Error: the mutation log cannot be written, the mutations "
+						+ "wait in memory: " + ex.getMessage());
+			failing = true;
+		}
+	}
+
+	/**
+	 * Get the number of bytes of the csv file that the collection holds the rows of, as read 
+	 * from the snapshot and the log by {@link MutationLog#recover(MeteoriteData)}. The rows 
+	 * after that offset were appended to the file later and still have to be loaded.
+	 *
+	 * @return the offset of the first byte of the csv file that was not loaded, 0 if no 
+	 * snapshot was recovered or written
+	 */
+	public synchronized long getSourceOffset() {
+		return sourceOffset;
+	}
+
+	/**
+	 * Sets the number of bytes of the csv file that the collection holds the rows of. It is 
+	 * logged before the next mutation or with the next group, whichever comes first, and 
+	 * written with the next snapshot, see {@link MutationLog#getSourceOffset()}. Set it after 
+	 * the rows before the offset were added, so that a crash in between makes the recovery 
+	 * read those rows again rather than miss them.
+	 *
+	 * @param offset the offset of the first byte of the csv file that was not loaded
+	 * @throws IllegalArgumentException if offset is negative
+	 */
+	public synchronized void setSourceOffset(long offset) throws IllegalArgumentException {
+		if (offset < 0)
+			throw new IllegalArgumentException("The offset cannot be negative.");
+		if (offset != sourceOffset) {
+			sourceOffset = offset;
+			offsetPending = true;
+		}
+	}
+
+	/**
+	 * Finds out whether the log grew enough to be compacted into a new snapshot.
+	 *
+	 * @return true if {@link MutationLog#compact(MeteoriteData)} should be called
+	 */
+	public synchronized boolean needsCompaction() {
+		return logged >= compactAt;
+	}
+
+	/**
+	 * Writes a new snapshot if the log grew enough. If the snapshot cannot be written, the 
+	 * failure is reported on the standard error and the snapshot is tried again after 
+	 * {@code compactThreshold} more mutations. Nothing is lost, since the log still holds 
+	 * every mutation.
+	 *
+	 * @param data the collection the log belongs to
+	 */
+	public synchronized void compactIfNeeded(MeteoriteData data) {
+		if (!needsCompaction())
+			return;
+		try {
+			compact(data);
+		}
+		catch (IOException ex) {
+			compactAt = logged + compactThreshold;
+			System.err.println("Error: the snapshot of the mutation log cannot be written: "
+					+ ex.getMessage());
+		}
+	}
+
+	/**
+	 * Writes the whole collection as the new snapshot and empties the log. The snapshot is
+	 * written to a temporary file first and then renamed, so a crash leaves either the old
+	 * snapshot and log or the new snapshot.
+	 *
+	 * @param data the collection the log belongs to
+	 * @throws IOException if the snapshot or the log cannot be written
+	 */
+	public synchronized void compact(MeteoriteData data) throws IOException {
+		Path temp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+		try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+				DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(
+						Channels.newOutputStream(out), 64 * 1024))) {
+			stream.writeInt(SNAPSHOT_MAGIC);
+			stream.writeByte(VERSION);
+			stream.writeInt(data.size());
+			stream.writeLong(sourceOffset);
+			ByteBuffer buffer = ByteBuffer.allocate(1024);
+			Iterator<Meteorite> itr = data.iterator();
+			while (itr.hasNext()) {
+				Meteorite m = itr.next();
+				byte[] name = m.getName().getBytes(StandardCharsets.UTF_8);
+				if (buffer.capacity() < size(m, name))
+					buffer = ByteBuffer.allocate(size(m, name));
+				buffer.clear();
+				encode(buffer, m, name);
+				crc.reset();
+				crc.update(buffer.array(), 0, buffer.position());
+				stream.writeInt(buffer.position());
+				stream.write(buffer.array(), 0, buffer.position());
+				stream.writeInt((int) crc.getValue());
+			}
+			stream.flush();
+			out.force(true);
+		}
+		Files.move(temp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+
+		//The snapshot holds everything now, including the mutations still waiting
+		pending.clear();
+		pendingCount = 0;
+		offsetPending = false;
+		channel.truncate(0);
+		writeLogHeader();
+		logged = 0;
+		compactAt = compactThreshold;
+	}
+
+	/**
+	 * Writes the waiting mutations and closes the log.
+	 *
+	 * @throws IOException if the log cannot be written
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed)
+			return;
+		try {
+			sync();
+		}
+		finally {
+			closed = true;
+			if (flusher != null)
+				flusher.interrupt();
+			channel.close();
+		}
+	}
+
+	/**
+	 * Writes the waiting mutations every maxDelayMillis milliseconds until the log is closed.
+	 */
+	private void flushPeriodically() {
+		try {
+			while (true) {
+				Thread.sleep(maxDelayMillis);
+				synchronized (this) {
+					if (closed)
+						return;
+					trySync();
+				}
+			}
+		}
+		catch (InterruptedException ex) {}
+	}
+
+	private void writeLogHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(LOG_HEADER);
+		header.putInt(LOG_MAGIC).put(VERSION).flip();
+		while (header.hasRemaining())
+			channel.write(header, header.position());
+		channel.force(false);
+		end = LOG_HEADER;
+	}
+
+	/**
+	 * Adds the source offset to the waiting mutations.
+	 */
+	private void appendOffset() {
+		ensurePending(1 + 8 + 8);
+		pending.putInt(1 + 8);
+		int start = pending.position();
+		pending.put(OFFSET);
+		pending.putLong(sourceOffset);
+		crc.reset();
+		crc.update(pending.array(), start, 1 + 8);
+		pending.putInt((int) crc.getValue());
+		pendingCount++;
+		logged++;
+		offsetPending = false;
+	}
+
+	/**
+	 * Makes room for a record in the buffer of waiting mutations.
+	 */
+	private void ensurePending(int bytes) {
+		if (pending.remaining() >= bytes)
+			return;
+		ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2,
+				pending.position() + bytes));
+		pending.flip();
+		larger.put(pending);
+		pending = larger;
+	}
+
+	/**
+	 * Reads the version of a log or snapshot file.
+	 *
+	 * @return the version of the file, {@link MutationLog#VERSION} if there is no file yet
+	 * @throws IOException if the file cannot be read or is not a log or snapshot
+	 */
+	private static byte version(Path file, int magic) throws IOException {
+		if (!Files.exists(file) || Files.size(file) == 0)
+			return VERSION;
+		try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+			if (in.readInt() != magic)
+				throw new IOException("Not a mutation log or snapshot: " + file.getFileName());
+			return in.readByte();
+		}
+		catch (EOFException ex) {
+			throw new IOException("Not a mutation log or snapshot: " + file.getFileName());
+		}
+	}
+
+	/**
+	 * Opens a log or snapshot file for reading and checks its header.
+	 */
+	private static DataInputStream open(InputStream file, int magic) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(file, 64 * 1024));
+		try {
+			if (in.readInt() != magic || in.readByte() != VERSION)
+				throw new IOException("Not a mutation log or snapshot of this version.");
+		}
+		catch (IOException ex) {
+			in.close();
+			throw ex;
+		}
+		return in;
+	}
+
+	/**
+	 * Reads the body of the next record and checks its checksum.
+	 *
+	 * @return the body of the record, or null at the end of the file or at a damaged record
+	 */
+	private byte[] readRecord(DataInputStream in) throws IOException {
+		try {
+			int length = in.readInt();
+			if (length <= 0 || length > (1 << 20))
+				return null;
+			byte[] body = new byte[length];
+			in.readFully(body);
+			int checksum = in.readInt();
+			crc.reset();
+			crc.update(body, 0, length);
+			return (int) crc.getValue() == checksum ? body : null;
+		}
+		catch (EOFException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes used by the encoded Meteorite with the given name.
+	 */
+	private static int size(Meteorite m, byte[] name) {
+		int size = 2 + name.length + 4 + 8 + 4 + 4 + 1 + 16;
+		for (int a = 0; a < Meteorite.CATEGORIES; a++) {
+			int code = m.getCategoryCode(a);
+			size += 2 + (code == -1 ? 0 : Meteorite.getDictionary(a).bytes(code).length);
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the fields of the Meteorite: name, id, mass, year, landing day, location and
+	 * categories. The categories are written as text, since the dictionary codes differ
+	 * between runs, and an undefined category as an empty text.
+	 */
+	private static void encode(ByteBuffer buffer, Meteorite m, byte[] name) {
+		buffer.putShort((short) name.length);
+		buffer.put(name);
+		buffer.putInt(m.getId());
+		buffer.putLong(m.getMassMilligrams());
+		buffer.putInt(m.getYear());
+		buffer.putInt(m.getEpochDay());
+		Location loc = m.getLocation();
+		buffer.put((byte) (loc == null ? 0 : 1));
+		buffer.putDouble(loc == null ? 0 : loc.getLatitude());
+		buffer.putDouble(loc == null ? 0 : loc.getLongitude());
+		for (int a = 0; a < Meteorite.CATEGORIES; a++) {
+			int code = m.getCategoryCode(a);
+			byte[] value = code == -1 ? NO_CATEGORY : Meteorite.getDictionary(a).bytes(code);
+			buffer.putShort((short) value.length);
+			buffer.put(value);
+		}
+	}
+
+	/**
+	 * Reads a Meteorite written by {@link MutationLog#encode(ByteBuffer, Meteorite, byte[])}.
+	 * Its Location is shared through the given pool.
+	 */
+	private static Meteorite decode(ByteBuffer buffer, LocationPool locations)
+			throws IOException {
+		byte[] name = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(name);
+		try {
+			Meteorite m = new Meteorite(new String(name, StandardCharsets.UTF_8),
+					buffer.getInt());
+			long mass = buffer.getLong();
+			int year = buffer.getInt();
+			int epochDay = buffer.getInt();
+			boolean located = buffer.get() != 0;
+			double latitude = buffer.getDouble();
+			double longitude = buffer.getDouble();
+			if (mass != -1)
+				m.setMassMilligrams(mass);
+			if (year != 0)
+				m.setYear(year);
+			if (epochDay != Meteorite.NO_DATE)
+				m.setEpochDay(epochDay);
+			if (located)
+				m.setLocation(locations.intern(latitude, longitude));
+			for (int a = 0; a < Meteorite.CATEGORIES; a++) {
+				byte[] value = new byte[buffer.getShort() & 0xFFFF];
+				buffer.get(value);
+				if (value.length == 0)
+					continue;
+				String category = new String(value, StandardCharsets.UTF_8);
+				if (a == Meteorite.NAMETYPE)
+					m.setNametype(category);
+				else if (a == Meteorite.RECCLASS)
+					m.setRecclass(category);
+				else
+					m.setFall(category);
+			}
+			return m;
+		}
+		catch (IllegalArgumentException ex) {
+			throw new IOException("The log holds an invalid Meteorite: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * A logged mutation with its position in the log.
+	 */
+	private static class Mutation {
+		byte op;
+		Meteorite meteorite;
+		int order;
+
+		Mutation(byte op, Meteorite meteorite, int order) {
+			this.op = op;
+			this.meteorite = meteorite;
+			this.order = order;
+		}
+	}
+}
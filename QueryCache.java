@@ -0,0 +1,244 @@
+package project5;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * This class is a bounded cache of query results placed in front of a {@link MeteoriteData}
+ * collection (see {@link MeteoriteData#setQueryCache(QueryCache)}). Results are keyed by the
+ * normalized query, which is the kind of query and the inclusive range of keys it covers, so
+ * {@code getByMass(10, 10)} and {@code getByMass(5, 15)} share one entry.
+ *
+ * The cache holds at most {@code maxEntries} results and at most {@code maxBytes} estimated
+ * bytes of results. The least recently used result is evicted first. When a Meteorite is
+ * added to or removed from the collection, the result of its year is dropped at once, and
+ * every cached mass range becomes stale. Mass ranges overlap, so finding the ones that contain
+ * the mass would mean checking every entry on each change; instead each mass result keeps
+ * the version of the masses it was computed from, and a stale result is dropped when it is
+ * looked up again or evicted. A change therefore costs O(1) whatever the size of the cache.
+ *
+ * Cached results are shared between callers, so they are read-only: changing one throws an
+ * {@link UnsupportedOperationException}.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class QueryCache {
+	/**
+	 * The kinds of queries that are cached. Mass ranges are in milligrams.
+	 */
+	enum Kind { MASS, YEAR }
+
+	//Estimated bytes used by one Meteorite reference in a cached result (tree node)
+	private static final long BYTES_PER_RESULT = 40;
+	//Estimated bytes used by one cache entry without its result
+	private static final long BYTES_PER_ENTRY = 120;
+
+	private int maxEntries;
+	private long maxBytes;
+	//The estimated bytes used by all entries
+	private long bytes = 0;
+	//Entries ordered from least recently used to most recently used
+	private LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long invalidations = 0;
+	//Incremented every time a Meteorite with a mass is added or removed
+	private long massVersion = 0;
+
+	/**
+	 * Creates an empty cache bounded by the number of entries and the estimated size of the
+	 * results.
+	 *
+	 * @param maxEntries the maximum number of cached results
+	 * @param maxBytes the maximum estimated bytes of all cached results, 0 for no limit
+	 * @throws IllegalArgumentException if maxEntries is not positive or maxBytes is negative
+	 */
+	public QueryCache(int maxEntries, long maxBytes) throws IllegalArgumentException {
+		if (maxEntries <= 0 || maxBytes < 0)
+			throw new IllegalArgumentException("A cache needs a positive number of entries "
+					+ "and a non-negative number of bytes.");
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Looks up the result of a query and counts a hit or a miss. A stale mass result is
+	 * dropped and counted as a miss.
+	 *
+	 * @param kind the kind of query
+	 * @param low the lowest key of the query range
+	 * @param high the highest key of the query range
+	 * @return the cached entry, or null if the query is not cached
+	 */
+	Entry get(Kind kind, long low, long high) {
+		Key key = new Key(kind, low, high);
+		Entry entry = entries.get(key);
+		if (entry != null && kind == Kind.MASS && entry.version != massVersion) {
+			entries.remove(key);
+			bytes -= entry.bytes;
+			invalidations++;
+			entry = null;
+		}
+		if (entry == null)
+			misses++;
+		else
+			hits++;
+		return entry;
+	}
+
+	/**
+	 * Caches the result of a query, evicting the least recently used results if the cache
+	 * would grow past its bounds. A result too large for the cache on its own is not cached.
+	 *
+	 * @param kind the kind of query
+	 * @param low the lowest key of the query range
+	 * @param high the highest key of the query range
+	 * @param result the read-only result of the query, may be null
+	 * @param resultSize the number of Meteorite objects in the result
+	 */
+	void put(Kind kind, long low, long high, MeteoriteData result, int resultSize) {
+		long size = BYTES_PER_ENTRY + resultSize * BYTES_PER_RESULT;
+		if (maxBytes != 0 && size > maxBytes)
+			return;
+		Entry old = entries.put(new Key(kind, low, high), new Entry(result, size, massVersion));
+		if (old != null)
+			bytes -= old.bytes;
+		bytes += size;
+
+		Iterator<Entry> itr = entries.values().iterator();
+		while (entries.size() > maxEntries || (maxBytes != 0 && bytes > maxBytes)) {
+			bytes -= itr.next().bytes;
+			itr.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Drops the cached result of the year of the given Meteorite and, if it has a mass,
+	 * makes every cached mass result stale. Called when the Meteorite is added to or removed
+	 * from the collection. This operation is O(1).
+	 *
+	 * @param m the Meteorite that was added or removed
+	 */
+	void invalidate(Meteorite m) {
+		if (m.getYear() != 0) {
+			Entry old = entries.remove(new Key(Kind.YEAR, m.getYear(), m.getYear()));
+			if (old != null) {
+				bytes -= old.bytes;
+				invalidations++;
+			}
+		}
+		if (m.getMassMilligrams() != -1)
+			massVersion++;
+	}
+
+	/**
+	 * Removes all cached results. The counters are kept.
+	 */
+	public void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * @return the number of cached results, including stale mass results not dropped yet
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the estimated bytes of all cached results
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the number of lookups answered from the cache
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups not found in the cache
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of results evicted to keep the cache in its bounds
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return the number of results dropped because the collection changed
+	 */
+	public long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * Formats the counters of the cache like:
+	 * "entries 3 (1200 bytes), hits 10, misses 3, evictions 0, invalidations 0".
+	 *
+	 * @return the counters of the cache as a String
+	 */
+	@Override
+	public String toString() {
+		return String.format("entries %d (%d bytes), hits %d, misses %d, evictions %d, "
+				+ "invalidations %d", entries.size(), bytes, hits, misses, evictions,
+				invalidations);
+	}
+
+	/**
+	 * A normalized query: the kind of query and the inclusive range of keys it covers.
+	 */
+	private static class Key {
+		Kind kind;
+		long low;
+		long high;
+
+		Key(Kind kind, long low, long high) {
+			this.kind = kind;
+			this.low = low;
+			this.high = high;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key) obj;
+			return kind == other.kind && low == other.low && high == other.high;
+		}
+
+		@Override
+		public int hashCode() {
+			return (kind.hashCode() * 31 + Long.hashCode(low)) * 31 + Long.hashCode(high);
+		}
+	}
+
+	/**
+	 * A cached result with its estimated size in bytes and the mass version it was computed
+	 * from.
+	 */
+	static class Entry {
+		MeteoriteData result;
+		long bytes;
+		long version;
+
+		Entry(MeteoriteData result, long bytes, long version) {
+			this.result = result;
+			this.bytes = bytes;
+			this.version = version;
+		}
+	}
+}
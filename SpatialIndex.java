@@ -0,0 +1,188 @@
+package project5;
+
+import java.util.HashSet;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * This class is a {@link MeteoriteIndex} backed by a grid of latitude/longitude cells. Each
+ * meteorite with a {@link Location} is stored in the cell containing its landing site, so
+ * that searching around a location only has to look at the cells close to it instead of the
+ * whole collection. Meteorites without a location are never stored. A cell is a hash set, so
+ * removing a meteorite is O(1) however many meteorites landed in its cell.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class SpatialIndex extends MeteoriteIndex {
+	//Number of kilometres in one degree of latitude (radius of 6371 km used by Location)
+	private static final double KM_PER_DEGREE = 6371 * Math.PI / 180;
+
+	//The width and height of a cell in degrees
+	private double cellDegrees;
+	//Number of cells from south to north and from west to east
+	private int rows;
+	private int cols;
+	//The cells of the grid stored row by row. Cells are created when first needed.
+	private HashSet<?>[] cells;
+	//The number of meteorites stored in all cells
+	private int size = 0;
+
+	/**
+	 * Creates an empty grid whose cells are {@code cellDegrees} wide and high.
+	 *
+	 * @param name the name of the index
+	 * @param cellDegrees the size of a cell in degrees
+	 * @param present the predicate that decides which meteorites are stored in the index.
+	 * Meteorites without a location are never stored.
+	 * @throws IllegalArgumentException if cellDegrees is not in (0, 180]
+	 */
+	public SpatialIndex(String name, double cellDegrees, Predicate<Meteorite> present)
+			throws IllegalArgumentException {
+		super(name, present);
+		if (!(cellDegrees > 0 && cellDegrees <= 180))
+			throw new IllegalArgumentException("The size of a cell should be in (0, 180] "
+					+ "degrees. Provided size: " + cellDegrees);
+		this.cellDegrees = cellDegrees;
+		this.rows = (int) Math.ceil(180 / cellDegrees);
+		this.cols = (int) Math.ceil(360 / cellDegrees);
+		this.cells = new HashSet<?>[rows * cols];
+	}
+
+	/**
+	 * Returns the row of the grid containing the latitude.
+	 */
+	private int row(double latitude) {
+		return Math.min(rows - 1, Math.max(0, (int) ((latitude + 90) / cellDegrees)));
+	}
+
+	/**
+	 * Returns the column of the grid containing the longitude.
+	 */
+	private int col(double longitude) {
+		return Math.min(cols - 1, Math.max(0, (int) ((longitude + 180) / cellDegrees)));
+	}
+
+	@SuppressWarnings("unchecked")
+	private HashSet<Meteorite> cell(int row, int col) {
+		return (HashSet<Meteorite>) cells[row * cols + col];
+	}
+
+	@Override
+	boolean insert(Meteorite m) {
+		Location loc = m.getLocation();
+		if (loc == null)
+			return false;
+		int r = row(loc.getLatitude());
+		int c = col(loc.getLongitude());
+		HashSet<Meteorite> cell = cell(r, c);
+		if (cell == null) {
+			cell = new HashSet<>();
+			cells[r * cols + c] = cell;
+		}
+		if (!cell.add(m))
+			return false;
+		size++;
+		return true;
+	}
+
+	@Override
+	boolean delete(Meteorite m) {
+		Location loc = m.getLocation();
+		if (loc == null)
+			return false;
+		HashSet<Meteorite> cell = cell(row(loc.getLatitude()), col(loc.getLongitude()));
+		if (cell == null || !cell.remove(m))
+			return false;
+		size--;
+		return true;
+	}
+
+	@Override
+	void clear() {
+		cells = new HashSet<?>[rows * cols];
+		size = 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of meteorites stored in the cells that could hold a landing site
+	 * within {@code km} kilometres of {@code center}. This is an upper bound of the number of
+	 * meteorites returned by {@link SpatialIndex#forEachWithin(Location, double, Consumer)}.
+	 *
+	 * @param center the location to search around
+	 * @param km the search radius in kilometres
+	 * @return the number of candidate meteorites
+	 */
+	public int countCandidates(Location center, double km) {
+		int[] total = {0};
+		visitCells(center, km, cell -> total[0] += cell.size());
+		return total[0];
+	}
+
+	/**
+	 * Performs the given action for every meteorite that landed within {@code km}
+	 * kilometres of {@code center}. The meteorites are visited in no particular order.
+	 *
+	 * @param center the location to search around
+	 * @param km the search radius in kilometres
+	 * @param action the action performed on each matching meteorite
+	 * @throws IllegalArgumentException if center is null or km is negative
+	 */
+	public void forEachWithin(Location center, double km, Consumer<Meteorite> action)
+			throws IllegalArgumentException {
+		if (center == null || km < 0)
+			throw new IllegalArgumentException("Need a location and a non-negative radius.");
+		//Compare squared chord lengths instead of computing every distance
+		double limit = Location.toChordSquared(km);
+		visitCells(center, km, cell -> {
+			for (Meteorite m : cell) {
+				if (center.chordSquared(m.getLocation()) <= limit)
+					action.accept(m);
+			}
+		});
+	}
+
+	/**
+	 * Performs the given action on every non-empty cell that overlaps the bounding box of the
+	 * circle of radius {@code km} around {@code center}.
+	 */
+	private void visitCells(Location center, double km, Consumer<HashSet<Meteorite>> action) {
+		double dLat = km / KM_PER_DEGREE;
+		double latLow = center.getLatitude() - dLat;
+		double latHigh = center.getLatitude() + dLat;
+		int fromRow = row(latLow);
+		int toRow = row(latHigh);
+
+		//Find how many columns are needed. Near the poles (or for huge radius) every
+		//	column has to be searched.
+		int fromCol = 0;
+		int toCol = cols - 1;
+		if (latLow > -90 && latHigh < 90) {
+			double widest = Math.max(Math.abs(latLow), Math.abs(latHigh));
+			double dLon = dLat / Math.cos(Math.toRadians(widest));
+			if (dLon < 180) {
+				fromCol = (int) Math.floor((center.getLongitude() - dLon + 180) / cellDegrees);
+				toCol = (int) Math.floor((center.getLongitude() + dLon + 180) / cellDegrees);
+				//Do not visit any column twice when the box wraps around the whole grid
+				if (toCol - fromCol >= cols) {
+					fromCol = 0;
+					toCol = cols - 1;
+				}
+			}
+		}
+
+		for (int r = fromRow; r <= toRow; r++) {
+			for (int c = fromCol; c <= toCol; c++) {
+				//Columns past the date line wrap around
+				HashSet<Meteorite> cell = cell(r, Math.floorMod(c, cols));
+				if (cell != null && !cell.isEmpty())
+					action.accept(cell);
+			}
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package project5;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * This class is a {@link MeteoriteIndex} backed by a {@link BST} that is ordered by the given
+ * comparator. It supports range queries in O(K+H) in which K is the number of matching
+ * meteorites and H is the height of the tree.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class TreeIndex extends MeteoriteIndex {
+	//The comparator used to order the tree, null for natural ordering
+	private Comparator<Meteorite> comparator;
+	//The tree holding all present meteorites
+	private BST<Meteorite> tree;
+
+	/**
+	 * Creates an empty index ordered by the given comparator.
+	 *
+	 * @param name the name of the index
+	 * @param comparator the ordering of the index, null for natural ordering. The comparator
+	 * should be consistent with equals of {@link Meteorite}, otherwise meteorites will be lost.
+	 * @param present the predicate that decides which meteorites are stored in the index
+	 */
+	public TreeIndex(String name, Comparator<Meteorite> comparator,
+			Predicate<Meteorite> present) {
+		super(name, present);
+		this.comparator = comparator;
+		this.tree = new BST<>(comparator);
+		//Meteorites are often added in an order close to the one of the index
+		tree.setRebalanceFactor(BST.DEFAULT_REBALANCE_FACTOR);
+	}
+
+	/**
+	 * Sorts the present meteorites once and builds a balanced tree from them, instead of
+	 * adding them one by one (which creates a linkedlist-like tree for sorted input).
+	 * Meteorites equal according to the comparator are only kept once, like
+	 * {@link BST#add(Comparable)} does.
+	 */
+	@Override
+	void build(Iterator<Meteorite> itr) {
+		ArrayList<Meteorite> sorted = new ArrayList<>();
+		while (itr.hasNext()) {
+			Meteorite m = itr.next();
+			if (isPresent(m))
+				sorted.add(m);
+		}
+		sorted.sort(comparator);
+		//Drop the duplicates according to the comparator, keeping the first one
+		int kept = 0;
+		for (int i = 0; i < sorted.size(); i++) {
+			if (kept == 0 || compare(sorted.get(kept - 1), sorted.get(i)) != 0)
+				sorted.set(kept++, sorted.get(i));
+		}
+		sorted.subList(kept, sorted.size()).clear();
+		tree = new BST<>(comparator);
+		tree.buildBalanced(sorted);
+		tree.setRebalanceFactor(BST.DEFAULT_REBALANCE_FACTOR);
+	}
+
+	/**
+	 * Compares two meteorites with the comparator, or by natural ordering if there is none.
+	 */
+	private int compare(Meteorite o1, Meteorite o2) {
+		return comparator == null ? o1.compareTo(o2) : comparator.compare(o1, o2);
+	}
+
+	@Override
+	boolean insert(Meteorite m) {
+		return tree.add(m);
+	}
+
+	@Override
+	boolean delete(Meteorite m) {
+		return tree.remove(m);
+	}
+
+	/**
+	 * Merges the batch into the tree or adds it one by one, see {@link BST#addAll(
+	 * java.util.Collection)}.
+	 */
+	@Override
+	void insertAll(List<Meteorite> batch) {
+		tree.addAll(batch);
+	}
+
+	/**
+	 * Removes the batch with a merge or one by one, see {@link BST#removeAll(
+	 * java.util.Collection)}.
+	 */
+	@Override
+	void deleteAll(List<Meteorite> batch) {
+		tree.removeAll(batch);
+	}
+
+	/**
+	 * Removes the meteorites from fromElement, inclusive, to toElement, inclusive, according 
+	 * to the ordering of this index. See {@link BST#removeRange(Comparable, Comparable)}.
+	 *
+	 * @param fromElement - low endpoint (inclusive)
+	 * @param toElement - high endpoint (inclusive)
+	 * @return the removed meteorites in the ordering of this index
+	 */
+	ArrayList<Meteorite> removeRange(Meteorite fromElement, Meteorite toElement) {
+		return tree.removeRange(fromElement, toElement);
+	}
+
+	@Override
+	void clear() {
+		tree = new BST<>(comparator);
+		tree.setRebalanceFactor(BST.DEFAULT_REBALANCE_FACTOR);
+	}
+
+	@Override
+	public int size() {
+		return tree.size();
+	}
+
+	/**
+	 * Get the tree backing this index. The tree should not be modified by the caller.
+	 *
+	 * @return the tree holding all meteorites of this index
+	 */
+	BST<Meteorite> getTree() {
+		return this.tree;
+	}
+
+	/**
+	 * Returns all meteorites from fromElement, inclusive, to toElement, inclusive, according
+	 * to the ordering of this index. See {@link BST#getRange(Comparable, Comparable)}.
+	 *
+	 * @param fromElement - low endpoint (inclusive)
+	 * @param toElement - high endpoint (inclusive)
+	 * @return the sorted list of matching meteorites
+	 */
+	public ArrayList<Meteorite> getRange(Meteorite fromElement, Meteorite toElement) {
+		return tree.getRange(fromElement, toElement);
+	}
+
+	/**
+	 * Returns all meteorites from fromElement, inclusive, to toElement, inclusive, according
+	 * to the ordering of this index. See {@link BST#getRangeBST(Comparable, Comparable)}.
+	 *
+	 * @param fromElement - low endpoint (inclusive)
+	 * @param toElement - high endpoint (inclusive)
+	 * @return a tree ordered like this index with the matching meteorites
+	 */
+	public BST<Meteorite> getRangeBST(Meteorite fromElement, Meteorite toElement) {
+		return tree.getRangeBST(fromElement, toElement);
+	}
+
+	/**
+	 * Returns the number of meteorites from fromElement, inclusive, to toElement, inclusive,
+	 * according to the ordering of this index. See
+	 * {@link BST#countRange(Comparable, Comparable)}.
+	 *
+	 * @param fromElement - low endpoint (inclusive)
+	 * @param toElement - high endpoint (inclusive)
+	 * @return the number of matching meteorites
+	 */
+	public int countRange(Meteorite fromElement, Meteorite toElement) {
+		return tree.countRange(fromElement, toElement);
+	}
+
+	/**
+	 * Performs the given action on the meteorites from fromElement, inclusive, to toElement,
+	 * inclusive, in the ordering of this index until the action returns false. See
+	 * {@link BST#forEachInRange(Comparable, Comparable, Predicate)}.
+	 *
+	 * @param fromElement - low endpoint (inclusive)
+	 * @param toElement - high endpoint (inclusive)
+	 * @param action - the action to perform. Returning false stops the walk.
+	 * @return true if all matching meteorites were visited
+	 */
+	public boolean forEachInRange(Meteorite fromElement, Meteorite toElement,
+			Predicate<? super Meteorite> action) {
+		return tree.forEachInRange(fromElement, toElement, action);
+	}
+}
@@ -0,0 +1,238 @@
+package project5;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class finds the Meteorite objects whose name is closest to a possibly misspelled name,
+ * by edit distance (Levenshtein distance: the number of characters to insert, delete or
+ * replace). Names are compared without case and without diacritics, so "allan hils" finds
+ * "Allan Hills" and "air" finds "A&iuml;r".
+ *
+ * Every name is cut into trigrams (the runs of 3 characters of the name padded with 2
+ * markers on each side), and an inverted index lists the names holding each trigram. A search
+ * counts the trigrams every name shares with the searched name, and only computes the edit
+ * distance of the names sharing the most trigrams: an edit changes at most 3 trigrams, so a
+ * name sharing c of the u distinct trigrams of the searched name is at least (u - c) / 3
+ * edits away. The names are tried by decreasing number of shared trigrams, and the search
+ * stops once that bound is worse than the K-th best distance found. The edit distance itself
+ * is computed with that distance as a bound, so hopeless names are given up early.
+ *
+ * Names that share no trigram with the searched name are never returned. The trigrams are a
+ * snapshot: they do not follow later changes of the collection.
+ *
+ * @author Jonason Wu
+ * @version 10/19/2026
+ */
+public class TrigramNames {
+	//Padding added on both sides of a name before it is cut into trigrams
+	private static final char PAD = '\u0000';
+
+	//The Meteorite objects in natural ordering, and their normalized names
+	private Meteorite[] meteorites;
+	private String[] keys;
+	//The positions of the names holding every trigram, in increasing order
+	private HashMap<Long, int[]> postings = new HashMap<>();
+	//The number of trigrams every name shares with the searched name, all 0 between 
+	//	searches. A search takes it and puts it back, and a search running at the same time 
+	//	creates its own.
+	private final AtomicReference<int[]> scratch = new AtomicReference<>();
+
+	/**
+	 * Builds the trigram index of the Meteorite objects returned by the iterator, which must
+	 * be in natural ordering.
+	 *
+	 * @param itr the Meteorite objects in natural ordering
+	 * @param capacity the expected number of Meteorite objects
+	 */
+	public TrigramNames(Iterator<Meteorite> itr, int capacity) {
+		ArrayList<Meteorite> sorted = new ArrayList<>(capacity);
+		while (itr.hasNext())
+			sorted.add(itr.next());
+		meteorites = sorted.toArray(new Meteorite[sorted.size()]);
+		keys = new String[meteorites.length];
+
+		//Collect the postings in growing arrays, with their length in the first element
+		HashMap<Long, int[]> growing = new HashMap<>();
+		for (int i = 0; i < meteorites.length; i++) {
+			keys[i] = normalize(meteorites[i].getName());
+			for (long gram : trigrams(keys[i])) {
+				int[] list = growing.get(gram);
+				if (list == null) {
+					list = new int[4];
+					growing.put(gram, list);
+				}
+				else if (list[0] + 1 == list.length) {
+					list = Arrays.copyOf(list, list.length * 2);
+					growing.put(gram, list);
+				}
+				list[++list[0]] = i;
+			}
+		}
+		for (HashMap.Entry<Long, int[]> entry : growing.entrySet()) {
+			int[] list = entry.getValue();
+			postings.put(entry.getKey(), Arrays.copyOfRange(list, 1, list[0] + 1));
+		}
+	}
+
+	/**
+	 * Returns the number of names stored.
+	 *
+	 * @return the number of Meteorite objects
+	 */
+	public int size() {
+		return meteorites.length;
+	}
+
+	/**
+	 * Finds the Meteorite objects whose name is closest to the given one.
+	 *
+	 * @param name the name to look for, possibly misspelled
+	 * @param k the largest number of Meteorite objects to return
+	 * @return at most {@code k} Meteorite objects, from the closest name to the farthest, and
+	 * in natural ordering for names at the same distance
+	 * @throws IllegalArgumentException if name is null or k is not positive
+	 */
+	public ArrayList<Meteorite> closest(String name, int k) throws IllegalArgumentException {
+		if (name == null || k <= 0)
+			throw new IllegalArgumentException("Need a name and a positive number of results.");
+		String key = normalize(name);
+		long[] grams = trigrams(key);
+
+		//Count the trigrams every name shares with the searched one
+		int[] shared = scratch.getAndSet(null);
+		if (shared == null)
+			shared = new int[meteorites.length];
+		int[] touched = new int[16];
+		int candidates = 0;
+		for (long gram : grams) {
+			int[] list = postings.get(gram);
+			if (list == null)
+				continue;
+			for (int i : list) {
+				if (shared[i]++ == 0) {
+					if (candidates == touched.length)
+						touched = Arrays.copyOf(touched, candidates * 2);
+					touched[candidates++] = i;
+				}
+			}
+		}
+
+		//Order the candidates by decreasing number of shared trigrams (counting sort)
+		int[] start = new int[grams.length + 2];
+		for (int c = 0; c < candidates; c++)
+			start[grams.length - shared[touched[c]] + 1]++;
+		for (int s = 1; s < start.length; s++)
+			start[s] += start[s - 1];
+		int[] order = new int[candidates];
+		for (int c = 0; c < candidates; c++)
+			order[start[grams.length - shared[touched[c]]]++] = touched[c];
+
+		//Keep the k best names, with the worst one at the head of the queue
+		PriorityQueue<int[]> best = new PriorityQueue<>(k + 1, (a, b) ->
+				a[0] != b[0] ? Integer.compare(b[0], a[0]) : Integer.compare(b[1], a[1]));
+		for (int i : order) {
+			int bound = best.size() < k ? Integer.MAX_VALUE : best.peek()[0];
+			//Every later candidate shares fewer trigrams, so none can be closer
+			if ((grams.length - shared[i] + 2) / 3 > bound)
+				break;
+			int distance = distance(key, keys[i], bound);
+			if (distance > bound)
+				continue;
+			if (best.size() == k) {
+				int[] worst = best.peek();
+				if (distance == worst[0] && i > worst[1])
+					continue;
+				best.poll();
+			}
+			best.add(new int[] {distance, i});
+		}
+		//Only the candidates were counted, so clearing them readies the counts for reuse
+		for (int c = 0; c < candidates; c++)
+			shared[touched[c]] = 0;
+		scratch.set(shared);
+
+		int[][] found = best.toArray(new int[best.size()][]);
+		Arrays.sort(found, (a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0])
+				: Integer.compare(a[1], b[1]));
+		ArrayList<Meteorite> result = new ArrayList<>(found.length);
+		for (int[] f : found)
+			result.add(meteorites[f[1]]);
+		return result;
+	}
+
+	/**
+	 * Computes the edit distance between two strings, giving up once it is known to be
+	 * larger than the bound.
+	 *
+	 * @return the edit distance, or a value larger than bound if it is larger than bound
+	 */
+	static int distance(String a, String b, int bound) {
+		int n = a.length();
+		int m = b.length();
+		if (Math.abs(n - m) > bound)
+			return bound + 1;
+		int[] previous = new int[m + 1];
+		int[] current = new int[m + 1];
+		for (int j = 0; j <= m; j++)
+			previous[j] = j;
+		for (int i = 1; i <= n; i++) {
+			current[0] = i;
+			int lowest = current[0];
+			char c = a.charAt(i - 1);
+			for (int j = 1; j <= m; j++) {
+				int cost = c == b.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(previous[j - 1] + cost,
+						Math.min(previous[j], current[j - 1]) + 1);
+				lowest = Math.min(lowest, current[j]);
+			}
+			//The distance cannot get smaller than the smallest value of a row
+			if (lowest > bound)
+				return bound + 1;
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[m];
+	}
+
+	/**
+	 * Folds the case of the name and removes its diacritics.
+	 */
+	static String normalize(String name) {
+		String plain = Normalizer.normalize(name, Normalizer.Form.NFD)
+				.replaceAll("\\p{M}+", "");
+		char[] chars = plain.toCharArray();
+		for (int i = 0; i < chars.length; i++)
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		return new String(chars);
+	}
+
+	/**
+	 * Returns the distinct trigrams of the padded key, each packed as 3 chars in a long.
+	 */
+	private static long[] trigrams(String key) {
+		int length = key.length() + 4;
+		char[] padded = new char[length];
+		padded[0] = PAD;
+		padded[1] = PAD;
+		key.getChars(0, key.length(), padded, 2);
+		padded[length - 2] = PAD;
+		padded[length - 1] = PAD;
+		long[] grams = new long[length - 2];
+		for (int i = 0; i < grams.length; i++)
+			grams[i] = ((long) padded[i] << 32) | ((long) padded[i + 1] << 16) | padded[i + 2];
+		Arrays.sort(grams);
+		int distinct = 0;
+		for (int i = 0; i < grams.length; i++) {
+			if (i == 0 || grams[i] != grams[i - 1])
+				grams[distinct++] = grams[i];
+		}
+		return Arrays.copyOf(grams, distinct);
+	}
+}